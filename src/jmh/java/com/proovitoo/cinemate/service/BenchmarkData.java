@@ -0,0 +1,82 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Movie;
+import com.proovitoo.cinemate.entity.Schedule;
+import com.proovitoo.cinemate.entity.Seat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generated data for the benchmarks, the same seed always gives the same data
+ */
+final class BenchmarkData {
+    static final String[] GENRES = {"Action", "Adventure", "Animation", "Comedy", "Crime", "Drama", "Family",
+            "Fantasy", "History", "Horror", "Music", "Mystery", "Romance", "Sci-Fi", "Thriller", "War"};
+    static final String[] AGE_RESTRICTIONS = {"G", "PG", "PG-13", "R", "NC-17"};
+    static final String[] COUNTRIES = {"United States", "United Kingdom", "France", "Germany", "Japan", "Estonia"};
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @param hall - size of the hall as rows x seats per row, e.g. "9x9"
+     * @return - rows and seats per row
+     */
+    static int[] hallSize(String hall) {
+        String[] size = hall.split("x");
+        return new int[]{Integer.parseInt(size[0]), Integer.parseInt(size[1])};
+    }
+
+    /**
+     * @param schedule  - seance of the seats, may be null
+     * @param occupancy - share of the occupied seats
+     * @return - seats of a rectangular hall in row-major order
+     */
+    static List<Seat> seats(Schedule schedule, int rows, int seatsPerRow, double occupancy, long seed) {
+        Random random = new Random(seed);
+        List<Seat> seats = new ArrayList<>(rows * seatsPerRow);
+        long id = 1;
+        for (int row = 1; row <= rows; row++) {
+            for (int seatNumber = 1; seatNumber <= seatsPerRow; seatNumber++) {
+                Seat seat = new Seat();
+                seat.setId(id++);
+                seat.setSeatRow(row);
+                seat.setSeatNumber(seatNumber);
+                seat.setOccupied(random.nextDouble() < occupancy);
+                seat.setSchedule(schedule);
+                seats.add(seat);
+            }
+        }
+        return seats;
+    }
+
+    /**
+     * @return - movies with one to three genres and random age restrictions, countries and release years
+     */
+    static List<Movie> movies(int count, long seed) {
+        Random random = new Random(seed);
+        List<Movie> movies = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Movie movie = new Movie();
+            movie.setId((long) i);
+            movie.setMovieName("Movie " + i);
+            movie.setRunningTimeInMinutes(80 + random.nextInt(100));
+            movie.setDescription("A generated movie number " + i + " for the benchmarks.");
+            movie.setAgeRestriction(AGE_RESTRICTIONS[random.nextInt(AGE_RESTRICTIONS.length)]);
+            movie.setReleaseYear(1950 + random.nextInt(75));
+            movie.setCountry(COUNTRIES[random.nextInt(COUNTRIES.length)]);
+            movie.setImdbRating(String.valueOf(1 + random.nextInt(90) / 10.0));
+            movie.setDirector("Director " + random.nextInt(500));
+            movie.setActors("Actor " + random.nextInt(1000) + ", Actor " + random.nextInt(1000));
+            StringBuilder genreNames = new StringBuilder(GENRES[random.nextInt(GENRES.length)]);
+            for (int genres = random.nextInt(3); genres > 0; genres--) {
+                genreNames.append(", ").append(GENRES[random.nextInt(GENRES.length)]);
+            }
+            movie.setGenreNames(genreNames.toString());
+            movies.add(movie);
+        }
+        return movies;
+    }
+}
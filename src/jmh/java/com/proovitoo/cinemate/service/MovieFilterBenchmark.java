@@ -0,0 +1,71 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Movie;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Movie filtering with MovieIndex against a plain scan of the catalog with the same filter
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MovieFilterBenchmark {
+    @Param({"1000", "10000", "100000"})
+    private int movies;
+
+    private List<Movie> catalog;
+    private MovieIndex index;
+    private MovieFilter genreFilter;
+    private MovieFilter combinedFilter;
+
+    @Setup
+    public void setUp() {
+        catalog = BenchmarkData.movies(movies, 42);
+        index = new MovieIndex();
+        index.rebuild(catalog);
+        genreFilter = new MovieFilter(Set.of("Drama"), false, null, null, null, null);
+        combinedFilter = new MovieFilter(Set.of("Action", "Comedy"), false, Set.of("PG-13", "R"),
+                Set.of("United States"), 1990, 2010);
+    }
+
+    @Benchmark
+    public List<Movie> indexGenre() {
+        return index.find(genreFilter);
+    }
+
+    @Benchmark
+    public List<Movie> indexCombined() {
+        return index.find(combinedFilter);
+    }
+
+    @Benchmark
+    public List<Movie> indexCombinedPage() {
+        return index.find(combinedFilter, 0, 20);
+    }
+
+    @Benchmark
+    public List<Movie> scanCombined() {
+        return catalog.stream().filter(movie -> matches(movie, combinedFilter)).toList();
+    }
+
+    private static boolean matches(Movie movie, MovieFilter filter) {
+        if (!filter.genres().isEmpty() && Arrays.stream(movie.getGenreNames().split(","))
+                .map(String::trim)
+                .noneMatch(filter.genres()::contains)) {
+            return false;
+        }
+        if (!filter.ageRestrictions().isEmpty() && !filter.ageRestrictions().contains(movie.getAgeRestriction())) {
+            return false;
+        }
+        if (!filter.countries().isEmpty() && !filter.countries().contains(movie.getCountry())) {
+            return false;
+        }
+        return (filter.fromYear() == null || movie.getReleaseYear() >= filter.fromYear())
+                && (filter.toYear() == null || movie.getReleaseYear() <= filter.toYear());
+    }
+}
@@ -0,0 +1,44 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.MovieSummary;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Type-ahead and full word queries of MovieSearchIndex
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MovieSearchBenchmark {
+    @Param({"1000", "10000", "100000"})
+    private int movies;
+
+    private MovieSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        index = new MovieSearchIndex();
+        index.rebuild(BenchmarkData.movies(movies, 42));
+    }
+
+    @Benchmark
+    public List<MovieSummary> typeAhead() {
+        return index.search("actor 12", 10);
+    }
+
+    @Benchmark
+    public List<MovieSummary> words() {
+        return index.search("director 42 movie", 10);
+    }
+
+    /**
+     * A prefix that matches every movie
+     */
+    @Benchmark
+    public List<MovieSummary> broadPrefix() {
+        return index.search("dir", 10);
+    }
+}
@@ -0,0 +1,72 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Schedule;
+import com.proovitoo.cinemate.entity.Seat;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk seat generation into an in-memory H2 database, every invocation writes about a million seats.
+ * The seat table is emptied before each iteration so all of them insert into the same table size
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SeatGenerationBenchmark {
+    private static final int SEATS = 1_000_000;
+
+    @Param({"9x9", "40x25"})
+    private String hall;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private SeatGenerator seatGenerator;
+    private HallTemplate template;
+    private List<Schedule> schedules;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:seats;DB_CLOSE_DELAY=-1", true);
+        dataSource.getConnection().setAutoCommit(false);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE seat (id BIGINT PRIMARY KEY, seat_row INT NOT NULL, seat_number INT NOT NULL, "
+                + "occupied BOOLEAN NOT NULL, version BIGINT, schedule_id BIGINT)");
+        jdbcTemplate.execute("CREATE SEQUENCE seat_seq START WITH 1 INCREMENT BY " + Seat.ID_BLOCK_SIZE);
+        seatGenerator = new SeatGenerator(jdbcTemplate, event -> {
+        });
+
+        int[] size = BenchmarkData.hallSize(hall);
+        template = HallLayout.rectangle(size[0], size[1]).toTemplate();
+        schedules = new ArrayList<>();
+        for (long id = 1; id <= SEATS / template.size(); id++) {
+            Schedule schedule = new Schedule();
+            schedule.setId(id);
+            schedules.add(schedule);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void emptySeats() throws SQLException {
+        jdbcTemplate.execute("TRUNCATE TABLE seat");
+        dataSource.getConnection().commit();
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public long generateSeats() throws SQLException {
+        long seats = seatGenerator.generateSeats(schedules, template);
+        dataSource.getConnection().commit();
+        return seats;
+    }
+}
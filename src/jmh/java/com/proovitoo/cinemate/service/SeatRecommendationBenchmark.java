@@ -0,0 +1,62 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Seat;
+import com.proovitoo.cinemate.entity.SeatMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of CinemaService.recommendSeats across hall sizes, occupancy levels and ticket counts.
+ * recommendAfterPurchase is the cache miss every purchase causes, recommendCached the cache hit
+ * and findBestGroup the search alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SeatRecommendationBenchmark {
+    @Param({"9x9", "20x30", "40x60"})
+    private String hall;
+    @Param({"0.2", "0.6", "0.9"})
+    private double occupancy;
+    @Param({"2", "4", "8"})
+    private int tickets;
+
+    private List<Seat> seats;
+    private HallLayout layout;
+    private SeatGrid grid;
+    private SeatRecommendationCache cache;
+
+    @Setup
+    public void setUp() {
+        int[] size = BenchmarkData.hallSize(hall);
+        seats = BenchmarkData.seats(null, size[0], size[1], occupancy, 42);
+        layout = HallLayout.rectangle(size[0], size[1]);
+        grid = new SeatGrid(size[0], size[1]);
+        for (Seat seat : seats) {
+            grid.setFree(seat.getSeatRow(), seat.getSeatNumber(), !seat.isOccupied());
+        }
+        cache = new SeatRecommendationCache(new HallLayouts(),
+                new SeatHolds(event -> {
+                }, Duration.ofMinutes(10), Duration.ofMillis(250)));
+        cache.getSeatMap(1L, tickets, 0, () -> seats);
+    }
+
+    @Benchmark
+    public List<SeatBlock> findBestGroup() {
+        return SeatRecommender.findBestGroup(grid, layout, tickets);
+    }
+
+    @Benchmark
+    public SeatMap recommendAfterPurchase() {
+        return new ScheduleSeats(1L, 0, seats, Set.of(), layout).recommend(tickets, 0);
+    }
+
+    @Benchmark
+    public SeatMap recommendCached() {
+        return cache.getSeatMap(1L, tickets, 0, () -> seats);
+    }
+}
@@ -0,0 +1,69 @@
+package com.proovitoo.cinemate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.proovitoo.cinemate.entity.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of the responses: seat lists as /seats used to send them against the compact
+ * seat map, and movie lists against the movie summaries of the paged endpoints
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+    @Param({"9x9", "40x60"})
+    private String hall;
+    @Param({"100", "1000"})
+    private int movies;
+
+    private ObjectMapper objectMapper;
+    private List<Seat> seats;
+    private SeatMap seatMap;
+    private List<Movie> movieList;
+    private List<MovieSummary> summaries;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        movieList = BenchmarkData.movies(movies, 42);
+        summaries = movieList.stream().map(MovieSummary::of).toList();
+
+        Schedule schedule = new Schedule();
+        schedule.setId(1L);
+        schedule.setMovie(movieList.get(0));
+        schedule.setDateTime(LocalDateTime.of(2024, 4, 1, 19, 0));
+        schedule.setLanguage("English");
+        int[] size = BenchmarkData.hallSize(hall);
+        seats = BenchmarkData.seats(schedule, size[0], size[1], 0.5, 42);
+        seatMap = new ScheduleSeats(1L, 0, seats, Set.of(), HallLayout.rectangle(size[0], size[1])).recommend(4, 0);
+    }
+
+    @Benchmark
+    public byte[] seatList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(seats);
+    }
+
+    @Benchmark
+    public byte[] seatMap() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(seatMap);
+    }
+
+    @Benchmark
+    public byte[] movieList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(movieList);
+    }
+
+    @Benchmark
+    public byte[] movieSummaries() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(summaries);
+    }
+}
@@ -0,0 +1,64 @@
+package com.proovitoo.cinemate.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Latencies and outcomes of one endpoint.
+ * Every worker records into its own instance, they are merged once the run is over.
+ */
+final class LatencyStats {
+    private long[] latencies = new long[1024];
+    private int count;
+    private long conflicts;
+    private long errors;
+
+    void record(long nanos, int status) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+        if (status == 409) {
+            conflicts++;
+        } else if (status >= 400 || status < 0) {
+            errors++;
+        }
+    }
+
+    void merge(LatencyStats other) {
+        if (count + other.count > latencies.length) {
+            latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, count + other.count));
+        }
+        System.arraycopy(other.latencies, 0, latencies, count, other.count);
+        count += other.count;
+        conflicts += other.conflicts;
+        errors += other.errors;
+    }
+
+    int count() {
+        return count;
+    }
+
+    long conflicts() {
+        return conflicts;
+    }
+
+    long errors() {
+        return errors;
+    }
+
+    /**
+     * @param quantile - e.g. 0.99
+     * @return - latency in milliseconds, call sort first
+     */
+    double percentile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * count) - 1;
+        return latencies[Math.max(0, Math.min(count - 1, index))] / 1_000_000.0;
+    }
+
+    void sort() {
+        Arrays.sort(latencies, 0, count);
+    }
+}
@@ -0,0 +1,328 @@
+package com.proovitoo.cinemate.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proovitoo.cinemate.CinemateApplication;
+import com.proovitoo.cinemate.config.DataInitializer;
+import com.proovitoo.cinemate.entity.*;
+import com.proovitoo.cinemate.repository.GenreRepository;
+import com.proovitoo.cinemate.repository.MovieRepository;
+import com.proovitoo.cinemate.service.HallLayout;
+import com.proovitoo.cinemate.service.MovieSavedEvent;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Boots the application on an in-memory H2 database, seeds a catalog without calling OMDb and replays
+ * booking traffic against it: catalog browsing, schedules, seat maps with varied ticket counts and concurrent
+ * purchases of the same hot seances. Prints throughput, latency percentiles and double-booking violations,
+ * the exit code is 1 if any seat was sold twice.
+ * <p>
+ * Settings are system properties, see the loadTest task of the build:
+ * loadtest.duration and loadtest.warmup in seconds, loadtest.concurrency, loadtest.hall (e.g. 20x30),
+ * loadtest.movies and loadtest.hotSchedules.
+ */
+public final class LoadTest {
+    private static final String[] GENRES = {"Action", "Comedy", "Drama", "Family", "Horror", "Romance", "Sci-Fi", "Thriller"};
+    private static final String[] AGE_RESTRICTIONS = {"G", "PG", "PG-13", "R"};
+    private static final LocalTime[] SHOWTIMES = {LocalTime.of(11, 0), LocalTime.of(13, 0), LocalTime.of(16, 0),
+            LocalTime.of(19, 0), LocalTime.of(21, 30)};
+
+    private final Duration duration = Duration.ofSeconds(Long.getLong("loadtest.duration", 30));
+    private final Duration warmup = Duration.ofSeconds(Long.getLong("loadtest.warmup", 5));
+    private final int concurrency = Integer.getInteger("loadtest.concurrency", 64);
+    private final String hall = System.getProperty("loadtest.hall", "20x30");
+    private final int movieCount = Integer.getInteger("loadtest.movies", 200);
+    private final int hotScheduleCount = Integer.getInteger("loadtest.hotSchedules", 4);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final Map<Long, Boolean> soldSeats = new ConcurrentHashMap<>();
+    private final LongAdder doubleBookings = new LongAdder();
+    private final LongAdder soldOut = new LongAdder();
+
+    private String baseUrl;
+    private List<Long> movieIds;
+    private List<Long> scheduleIds;
+    private List<Long> hotScheduleIds;
+
+    public static void main(String[] args) throws Exception {
+        System.exit(new LoadTest().run());
+    }
+
+    private int run() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(CinemateApplication.class)
+                .properties("server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                        "cinemate.data.initialize=false",
+                        "spring.h2.console.enabled=false",
+                        "logging.level.root=WARN")
+                .run()) {
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/cinemate";
+            seed(context);
+
+            Map<String, LatencyStats> stats = drive();
+            int violations = verify(context.getBean(JdbcTemplate.class));
+            report(stats, violations);
+            return violations == 0 ? 0 : 1;
+        }
+    }
+
+    /**
+     * Creates the movies, genres and the schedules of every movie with the seats of the hall
+     */
+    private void seed(ConfigurableApplicationContext context) {
+        MovieRepository movieRepository = context.getBean(MovieRepository.class);
+        GenreRepository genreRepository = context.getBean(GenreRepository.class);
+        DataInitializer dataInitializer = context.getBean(DataInitializer.class);
+        for (String name : GENRES) {
+            Genre genre = new Genre();
+            genre.setName(name);
+            genreRepository.save(genre);
+        }
+
+        Random random = new Random(42);
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 1; i <= movieCount; i++) {
+            Movie movie = new Movie();
+            movie.setMovieName("Load test movie " + i);
+            movie.setDescription("Seeded by the load test");
+            movie.setRunningTimeInMinutes(90 + random.nextInt(60));
+            movie.setAgeRestriction(AGE_RESTRICTIONS[random.nextInt(AGE_RESTRICTIONS.length)]);
+            movie.setReleaseYear(1970 + random.nextInt(55));
+            movie.setCountry(random.nextBoolean() ? "United States" : "Estonia");
+            movie.setImdbRating(String.valueOf(5 + random.nextInt(50) / 10.0));
+            movie.setGenreNames(GENRES[random.nextInt(GENRES.length)] + ", " + GENRES[random.nextInt(GENRES.length)]);
+            movies.add(movie);
+        }
+        movieRepository.saveAll(movies);
+        movies.forEach(movie -> context.publishEvent(new MovieSavedEvent(movie)));
+        movieIds = movies.stream().map(Movie::getId).toList();
+
+        int[] size = Arrays.stream(hall.split("x")).mapToInt(Integer::parseInt).toArray();
+        Hall seededHall = dataInitializer.createHall("Load test hall", HallLayout.rectangle(size[0], size[1]));
+        List<Schedule> schedules = new ArrayList<>();
+        for (Movie movie : movies) {
+            for (LocalTime showtime : SHOWTIMES) {
+                Schedule schedule = new Schedule();
+                schedule.setMovie(movie);
+                schedule.setDateTime(LocalDate.now().atTime(showtime));
+                schedule.setLanguage("English");
+                schedules.add(schedule);
+            }
+        }
+        dataInitializer.createSchedules(schedules, seededHall);
+        scheduleIds = schedules.stream().map(Schedule::getId).toList();
+        hotScheduleIds = scheduleIds.subList(0, Math.min(hotScheduleCount, scheduleIds.size()));
+    }
+
+    /**
+     * Runs the workers for the warmup and the measured duration
+     *
+     * @return - merged statistics of the measured part by endpoint
+     */
+    private Map<String, LatencyStats> drive() throws InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        List<Future<Map<String, LatencyStats>>> futures = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            long seed = i;
+            futures.add(workers.submit(() -> work(new Random(seed), measureFrom, end)));
+        }
+        Map<String, LatencyStats> merged = new TreeMap<>();
+        for (Future<Map<String, LatencyStats>> future : futures) {
+            future.get().forEach((endpoint, stats) -> merged.computeIfAbsent(endpoint, k -> new LatencyStats()).merge(stats));
+        }
+        workers.shutdown();
+        return merged;
+    }
+
+    /**
+     * One simulated user, every iteration is one step of the traffic mix
+     */
+    private Map<String, LatencyStats> work(Random random, long measureFrom, long end) {
+        Map<String, LatencyStats> stats = new HashMap<>();
+        while (System.nanoTime() < end) {
+            Recorder recorder = new Recorder(stats, System.nanoTime() >= measureFrom);
+            int step = random.nextInt(100);
+            if (step < 20) {
+                recorder.get("movies", "/movies");
+            } else if (step < 30) {
+                recorder.get("movies/page", "/movies/page?sort=year&size=20");
+            } else if (step < 40) {
+                recorder.get("filter", "/filter?genre=" + GENRES[random.nextInt(GENRES.length)] + "&fromYear=1990");
+            } else if (step < 55) {
+                recorder.get("schedule_movie", "/schedule_movie?movieId=" + movieIds.get(random.nextInt(movieIds.size())));
+            } else if (step < 80) {
+                Long scheduleId = random.nextInt(10) < 8 ? pick(hotScheduleIds, random) : pick(scheduleIds, random);
+                recorder.get("seats", seatsPath(scheduleId, 1 + random.nextInt(8)));
+            } else {
+                buy(recorder, pick(hotScheduleIds, random), 1 + random.nextInt(4));
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Loads the seat map and buys the recommended seats, like the checkout of the frontend
+     */
+    private void buy(Recorder recorder, Long scheduleId, int tickets) {
+        HttpResponse<String> seatsResponse = recorder.get("seats", seatsPath(scheduleId, tickets));
+        if (seatsResponse == null || seatsResponse.statusCode() != 200) {
+            return;
+        }
+        List<Long> seatIds;
+        try {
+            seatIds = recommendedSeatIds(objectMapper.readValue(seatsResponse.body(), SeatMap.class));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read the seat map", e);
+        }
+        if (seatIds.isEmpty()) {
+            soldOut.increment();
+            return;
+        }
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(seatIds);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        HttpResponse<String> response = recorder.post("update-occupancy", "/update-occupancy", body);
+        if (response != null && response.statusCode() == 200) {
+            for (Long seatId : seatIds) {
+                if (soldSeats.putIfAbsent(seatId, Boolean.TRUE) != null) {
+                    doubleBookings.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes the run-length encoded seat ids and returns the ids of the recommended blocks
+     */
+    private static List<Long> recommendedSeatIds(SeatMap seatMap) {
+        long[] idsByPosition = new long[seatMap.rows() * seatMap.seatsPerRow()];
+        long[] runs = seatMap.seatIds();
+        int run = 0;
+        long nextId = runs.length > 0 ? runs[0] : 0;
+        long left = runs.length > 0 ? runs[1] : 0;
+        for (int position = 0; position < idsByPosition.length; position++) {
+            if ((seatMap.seats()[position >>> 3] & (1 << (position & 7))) == 0) {
+                continue;
+            }
+            if (left == 0) {
+                run += 2;
+                nextId = runs[run];
+                left = runs[run + 1];
+            }
+            idsByPosition[position] = nextId++;
+            left--;
+        }
+        List<Long> seatIds = new ArrayList<>();
+        for (SeatMap.Block block : seatMap.recommended()) {
+            for (int seat = block.firstSeat(); seat < block.firstSeat() + block.size(); seat++) {
+                seatIds.add(idsByPosition[(block.row() - 1) * seatMap.seatsPerRow() + seat - 1]);
+            }
+        }
+        return seatIds;
+    }
+
+    /**
+     * Compares the sold seats with the occupied seats in the database
+     *
+     * @return - number of seats sold twice, sold but not occupied or occupied but not sold
+     */
+    private int verify(JdbcTemplate jdbcTemplate) {
+        Set<Long> occupied = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM seat WHERE occupied = TRUE", Long.class));
+        long notOccupied = soldSeats.keySet().stream().filter(seatId -> !occupied.contains(seatId)).count();
+        long notSold = occupied.stream().filter(seatId -> !soldSeats.containsKey(seatId)).count();
+        System.out.printf("Seats sold: %d, occupied in the database: %d%n", soldSeats.size(), occupied.size());
+        System.out.printf("Sold twice: %d, sold but not occupied: %d, occupied but not sold: %d%n",
+                doubleBookings.sum(), notOccupied, notSold);
+        return (int) (doubleBookings.sum() + notOccupied + notSold);
+    }
+
+    private void report(Map<String, LatencyStats> stats, int violations) {
+        double seconds = duration.toMillis() / 1000.0;
+        long total = 0;
+        System.out.printf("%nLoad test: %d users for %ds after %ds warmup, hall %s, %d movies, %d hot seances%n",
+                concurrency, duration.toSeconds(), warmup.toSeconds(), hall, movieCount, hotScheduleIds.size());
+        System.out.printf("%-18s %10s %10s %9s %9s %9s %9s %10s %8s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "conflicts", "errors");
+        for (Map.Entry<String, LatencyStats> entry : stats.entrySet()) {
+            LatencyStats endpoint = entry.getValue();
+            endpoint.sort();
+            total += endpoint.count();
+            System.out.printf("%-18s %10d %10.1f %9.2f %9.2f %9.2f %9.2f %10d %8d%n", entry.getKey(), endpoint.count(),
+                    endpoint.count() / seconds, endpoint.percentile(0.5), endpoint.percentile(0.99),
+                    endpoint.percentile(0.999), endpoint.percentile(1), endpoint.conflicts(), endpoint.errors());
+        }
+        System.out.printf("Total %.1f req/s, purchases skipped because the seance was sold out: %d%n", total / seconds, soldOut.sum());
+        System.out.println(violations == 0 ? "No double bookings" : "DOUBLE BOOKING VIOLATIONS: " + violations);
+    }
+
+    private static String seatsPath(Long scheduleId, int tickets) {
+        return "/seats?scheduleID=" + scheduleId + "&numberOfTickets=" + tickets;
+    }
+
+    private static Long pick(List<Long> ids, Random random) {
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    /**
+     * Sends the requests of one step and records them when the warmup is over
+     */
+    private final class Recorder {
+        private final Map<String, LatencyStats> stats;
+        private final boolean measured;
+
+        private Recorder(Map<String, LatencyStats> stats, boolean measured) {
+            this.stats = stats;
+            this.measured = measured;
+        }
+
+        HttpResponse<String> get(String endpoint, String path) {
+            return send(endpoint, HttpRequest.newBuilder(URI.create(baseUrl + path)).GET());
+        }
+
+        HttpResponse<String> post(String endpoint, String path, String json) {
+            return send(endpoint, HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(json)));
+        }
+
+        private HttpResponse<String> send(String endpoint, HttpRequest.Builder request) {
+            long started = System.nanoTime();
+            HttpResponse<String> response = null;
+            try {
+                response = httpClient.send(request.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.ofString());
+            } catch (IOException e) {
+                // Recorded as an error below
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (measured) {
+                stats.computeIfAbsent(endpoint, k -> new LatencyStats())
+                        .record(System.nanoTime() - started, response == null ? -1 : response.statusCode());
+            }
+            return response;
+        }
+    }
+}
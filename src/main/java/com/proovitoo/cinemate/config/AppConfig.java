@@ -1,12 +1,40 @@
 package com.proovitoo.cinemate.config;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
 
 @Configuration
-public class AppConfig {
+public class AppConfig implements WebMvcConfigurer {
+    /**
+     * Built with the builder so the OMDb calls are timed as http.client.requests.
+     * Requests go through the JDK HttpClient, which blocks virtual threads without pinning them
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(RestTemplateBuilder restTemplateBuilder) {
+        return restTemplateBuilder
+                .requestFactory(() -> {
+                    JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+                            .connectTimeout(Duration.ofSeconds(5))
+                            .build());
+                    requestFactory.setReadTimeout(Duration.ofSeconds(10));
+                    return requestFactory;
+                })
+                .build();
+    }
+
+    /**
+     * Binary seat maps are added after the JSON converter so JSON stays the default
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new SeatMapHttpMessageConverter());
     }
 }
@@ -1,45 +1,85 @@
 package com.proovitoo.cinemate.config;
 
 import com.proovitoo.cinemate.entity.Genre;
+import com.proovitoo.cinemate.entity.Hall;
 import com.proovitoo.cinemate.entity.Movie;
 import com.proovitoo.cinemate.entity.Schedule;
-import com.proovitoo.cinemate.entity.Seat;
 import com.proovitoo.cinemate.repository.GenreRepository;
+import com.proovitoo.cinemate.repository.HallRepository;
 import com.proovitoo.cinemate.repository.MovieRepository;
 import com.proovitoo.cinemate.repository.ScheduleRepository;
-import com.proovitoo.cinemate.repository.SeatRepository;
+import com.proovitoo.cinemate.service.CatalogSnapshot;
+import com.proovitoo.cinemate.service.HallLayout;
+import com.proovitoo.cinemate.service.HallLayouts;
+import com.proovitoo.cinemate.service.MovieSavedEvent;
 import com.proovitoo.cinemate.service.OmdbService;
+import com.proovitoo.cinemate.service.SeatGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @Configuration
 public class DataInitializer {
+    private static final Logger log = LoggerFactory.getLogger(DataInitializer.class);
 
     private final MovieRepository movieRepository;
     private final GenreRepository genreRepository;
     private final ScheduleRepository scheduleRepository;
-    private final SeatRepository seatRepository;
+    private final HallRepository hallRepository;
+    private final HallLayouts hallLayouts;
+    private final SeatGenerator seatGenerator;
     private final OmdbService omdbService;
-
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogSnapshot catalogSnapshot;
 
     public DataInitializer(MovieRepository movieRepository, GenreRepository genreRepository,
-                           ScheduleRepository scheduleRepository, SeatRepository seatRepository,  OmdbService omdbService) {
+                           ScheduleRepository scheduleRepository, HallRepository hallRepository, HallLayouts hallLayouts,
+                           SeatGenerator seatGenerator, OmdbService omdbService, ApplicationEventPublisher eventPublisher,
+                           CatalogSnapshot catalogSnapshot) {
         this.movieRepository = movieRepository;
         this.genreRepository = genreRepository;
         this.scheduleRepository = scheduleRepository;
-        this.seatRepository = seatRepository;
+        this.hallRepository = hallRepository;
+        this.hallLayouts = hallLayouts;
+        this.seatGenerator = seatGenerator;
         this.omdbService = omdbService;
+        this.eventPublisher = eventPublisher;
+        this.catalogSnapshot = catalogSnapshot;
     }
 
+    /**
+     * Fills the database on startup, switched off with cinemate.data.initialize=false (e.g. by the load test).
+     * A persistent database that already has movies is used as it is, an empty one is loaded from the snapshot
+     * and only without a snapshot the movies are imported from OMDb
+     */
     @Bean
+    @ConditionalOnProperty(name = "cinemate.data.initialize", havingValue = "true", matchIfMissing = true)
     CommandLineRunner initDatabase() {
-        return args -> createMovies();
+        return args -> {
+            if (movieRepository.count() > 0) {
+                log.info("Database already has movies, the import is skipped");
+                return;
+            }
+            if (catalogSnapshot.restore()) {
+                return;
+            }
+            long started = System.nanoTime();
+            createMovies();
+            log.info("Imported the movies in {} ms", (System.nanoTime() - started) / 1_000_000);
+            catalogSnapshot.save();
+        };
     }
 
     /** INSERT NEW MOVIES HERE **/
@@ -53,23 +93,55 @@ public class DataInitializer {
             "Apteeker Melchior",
             "Frankenstein"};
 
+    /** Showtimes of every movie */
+    LocalTime[] showtimes = {
+            LocalTime.of(11, 0),
+            LocalTime.of(13, 0),
+            LocalTime.of(16, 0),
+            LocalTime.of(19, 0)};
+
     /**
-     * Creates movie entities using OMDb API service
+     * Creates movie entities using OMDb API service, the titles are fetched concurrently.
+     * Schedules of all the movies are saved in one batch and their seats are generated in bulk
      */
     public void createMovies() {
         LocalDate today = LocalDate.now();
-        for (String title : titles) {
-            Movie movie = omdbService.fetchMovieData(title);
-            if (movie != null) {
-                Set<Genre> movieGenres = createGenres(movie.getGenreNames().split(", "));
-                movie.setGenres(movieGenres);
-                movieRepository.save(movie);
-                createSchedule(movie, today.atTime(11, 0), "English", "Estonian");
-                createSchedule(movie, today.atTime(13, 0), "English", "Estonian");
-                createSchedule(movie, today.atTime(16, 0), "English", "Estonian");
-                createSchedule(movie, today.atTime(19, 0), "English", "Estonian");
+        Hall hall = defaultHall();
+        List<Schedule> schedules = new ArrayList<>();
+        for (Movie movie : omdbService.fetchMovieData(List.of(titles))) {
+            Set<Genre> movieGenres = createGenres(movie.getGenreNames().split(", "));
+            movie.setGenres(movieGenres);
+            movieRepository.save(movie);
+            eventPublisher.publishEvent(new MovieSavedEvent(movie));
+            for (LocalTime showtime : showtimes) {
+                schedules.add(newSchedule(movie, today.atTime(showtime), "English", "Estonian"));
             }
         }
+        createSchedules(schedules, hall);
+    }
+
+    /**
+     * Creates the hall if there is no hall with the name yet
+     * @param name - name of the hall
+     * @param layout - layout of the hall
+     * @return - saved hall
+     */
+    public Hall createHall(String name, HallLayout layout) {
+        Hall hall = hallRepository.findHallByName(name);
+        if (hall == null) {
+            hall = new Hall();
+            hall.setName(name);
+            hall.setLayout(layout.pattern());
+            hallRepository.save(hall);
+        }
+        return hall;
+    }
+
+    /**
+     * @return - 9x9 hall every schedule is in by default
+     */
+    private Hall defaultHall() {
+        return createHall("Hall 1", HallLayout.rectangle(9, 9));
     }
 
     /**
@@ -92,38 +164,24 @@ public class DataInitializer {
     }
 
     /**
-     * Creates schedule for the movie
-     * @param movie - movie
-     * @param dateTime - date and time
-     * @param language - language
-     * @param subtitles - subtitles
+     * Saves the schedules in batches and stamps the seats of the hall out for each of them
+     * @param schedules - schedules that are not saved yet
+     * @param hall - hall the schedules are in
      */
-    public void createSchedule(Movie movie, LocalDateTime dateTime, String language, String subtitles) {
+    public void createSchedules(List<Schedule> schedules, Hall hall) {
+        if (schedules.isEmpty()) {
+            return;
+        }
+        schedules.forEach(schedule -> schedule.setHall(hall));
+        seatGenerator.generateSeats(scheduleRepository.saveAllAndFlush(schedules), hallLayouts.get(hall).toTemplate());
+    }
+
+    private Schedule newSchedule(Movie movie, LocalDateTime dateTime, String language, String subtitles) {
         Schedule schedule = new Schedule();
         schedule.setMovie(movie);
         schedule.setDateTime(dateTime);
         schedule.setLanguage(language);
         schedule.setSubtitles(subtitles);
-
-        scheduleRepository.save(schedule);
-        createSeatsForSchedule(schedule);
-    }
-
-    /**
-     * Creates seat entities for the schedule
-     * @param schedule - schedule we are creating seats for
-     */
-    private void createSeatsForSchedule(Schedule schedule) {
-        for (int i = 1; i <= 9; i++) {
-            for (int j = 1; j <= 9; j++) {
-                Seat seat = new Seat();
-                seat.setSchedule(schedule);
-                seat.setSeatRow(i);
-                seat.setSeatNumber(j);
-                seat.setOccupied(false);
-                seat.setRecommended(false);
-                seatRepository.save(seat);
-            }
-        }
+        return schedule;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,131 @@
+package com.proovitoo.cinemate.config;
+
+import com.proovitoo.cinemate.entity.SeatMap;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes seat maps in a binary format for clients that send Accept: application/x-cinemate-seatmap.
+ * All numbers are big-endian:
+ * <pre>
+ * u8  format version (3)
+ * i64 schedule id, i64 occupancy version
+ * u16 rows, u16 seats per row
+ * u32 bitmap length n, n bytes seats bitmap, n bytes occupied bitmap, n bytes held bitmap
+ * u16 number of id runs, for every run: i64 first id, i32 run length
+ * u8  number of recommended blocks, for every block: u16 row, u16 first seat, u16 size
+ * u8  number of alternatives, for every alternative: the blocks like the recommended ones
+ * </pre>
+ * A seat map that does not fit the format, e.g. a hall with more than 65535 rows, is refused before anything is written.
+ */
+public class SeatMapHttpMessageConverter extends AbstractHttpMessageConverter<SeatMap> {
+    public static final String MEDIA_TYPE_VALUE = "application/x-cinemate-seatmap";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+    private static final int FORMAT_VERSION = 3;
+    private static final int MAX_U8 = 0xFF;
+    private static final int MAX_U16 = 0xFFFF;
+
+    public SeatMapHttpMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return SeatMap.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected SeatMap readInternal(Class<? extends SeatMap> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Seat maps can only be written", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(SeatMap seatMap, HttpOutputMessage outputMessage) throws IOException {
+        checkFormat(seatMap);
+        DataOutputStream out = new DataOutputStream(outputMessage.getBody());
+        out.writeByte(FORMAT_VERSION);
+        out.writeLong(seatMap.scheduleId());
+        out.writeLong(seatMap.version());
+        out.writeShort(seatMap.rows());
+        out.writeShort(seatMap.seatsPerRow());
+        out.writeInt(seatMap.seats().length);
+        out.write(seatMap.seats());
+        out.write(seatMap.occupied());
+        out.write(seatMap.held());
+        long[] seatIds = seatMap.seatIds();
+        out.writeShort(seatIds.length / 2);
+        for (int i = 0; i < seatIds.length; i += 2) {
+            out.writeLong(seatIds[i]);
+            out.writeInt((int) seatIds[i + 1]);
+        }
+        writeBlocks(out, seatMap.recommended());
+        out.writeByte(seatMap.alternatives().size());
+        for (List<SeatMap.Block> alternative : seatMap.alternatives()) {
+            writeBlocks(out, alternative);
+        }
+        out.flush();
+    }
+
+    private static void writeBlocks(DataOutputStream out, List<SeatMap.Block> blocks) throws IOException {
+        out.writeByte(blocks.size());
+        for (SeatMap.Block block : blocks) {
+            out.writeShort(block.row());
+            out.writeShort(block.firstSeat());
+            out.writeShort(block.size());
+        }
+    }
+
+    /**
+     * Checks that every number of the seat map fits its field, the stream would silently truncate it
+     *
+     * @param seatMap - seat map to be written
+     */
+    private static void checkFormat(SeatMap seatMap) {
+        checkRange("rows", seatMap.rows(), MAX_U16);
+        checkRange("seats per row", seatMap.seatsPerRow(), MAX_U16);
+        int bitmapLength = seatMap.seats().length;
+        if (seatMap.occupied().length != bitmapLength || seatMap.held().length != bitmapLength) {
+            throw new HttpMessageNotWritableException("Bitmaps of the seat map have different lengths");
+        }
+        long[] seatIds = seatMap.seatIds();
+        if (seatIds.length % 2 != 0) {
+            throw new HttpMessageNotWritableException("Seat id runs are not pairs of an id and a length");
+        }
+        checkRange("seat id runs", seatIds.length / 2, MAX_U16);
+        for (int i = 1; i < seatIds.length; i += 2) {
+            checkRange("seat id run length", seatIds[i], Integer.MAX_VALUE);
+        }
+        checkBlocks(seatMap.recommended());
+        checkRange("alternatives", seatMap.alternatives().size(), MAX_U8);
+        seatMap.alternatives().forEach(SeatMapHttpMessageConverter::checkBlocks);
+    }
+
+    private static void checkBlocks(List<SeatMap.Block> blocks) {
+        checkRange("blocks", blocks.size(), MAX_U8);
+        for (SeatMap.Block block : blocks) {
+            checkRange("block row", block.row(), MAX_U16);
+            checkRange("block first seat", block.firstSeat(), MAX_U16);
+            checkRange("block size", block.size(), MAX_U16);
+        }
+    }
+
+    private static void checkRange(String field, long value, long max) {
+        if (value < 0 || value > max) {
+            throw new HttpMessageNotWritableException(
+                    "Seat map does not fit the binary format, " + field + " " + value + " is not in 0.." + max);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.proovitoo.cinemate.config;
+
+/**
+ * Counts the SQL statements run on the current thread, the statements are reported by SqlStatementCountingDataSource.
+ * Counting is switched on per request by SqlStatementCountFilter, other threads only pay for one ThreadLocal lookup.
+ */
+public class SqlStatementCounter {
+    private final ThreadLocal<int[]> counts = new ThreadLocal<>();
+
+    /**
+     * Counts one statement if counting is on for the current thread
+     */
+    public void increment() {
+        int[] count = counts.get();
+        if (count != null) {
+            count[0]++;
+        }
+    }
+
+    /**
+     * Starts counting on the current thread
+     */
+    public void start() {
+        counts.set(new int[1]);
+    }
+
+    /**
+     * Stops counting on the current thread
+     *
+     * @return - number of statements since start
+     */
+    public int stop() {
+        int[] count = counts.get();
+        counts.remove();
+        return count == null ? 0 : count[0];
+    }
+}
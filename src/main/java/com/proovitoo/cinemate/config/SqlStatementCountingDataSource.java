@@ -0,0 +1,73 @@
+package com.proovitoo.cinemate.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Predicate;
+
+/**
+ * Reports every statement run through the connections of the data source to SqlStatementCounter,
+ * so Hibernate and JdbcTemplate statements are counted alike.
+ * A prepared statement or call counts once however many rows are batched into it,
+ * a plain statement counts every SQL string it executes or batches.
+ */
+public class SqlStatementCountingDataSource extends DelegatingDataSource {
+    private final SqlStatementCounter counter;
+
+    public SqlStatementCountingDataSource(DataSource targetDataSource, SqlStatementCounter counter) {
+        super(targetDataSource);
+        this.counter = counter;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return countingConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return countingConnection(super.getConnection(username, password));
+    }
+
+    private Connection countingConnection(Connection connection) {
+        return proxy(Connection.class, connection, name -> name.equals("prepareStatement") || name.equals("prepareCall"));
+    }
+
+    private Statement countingStatement(Statement statement) {
+        return proxy(Statement.class, statement,
+                name -> name.equals("addBatch") || name.startsWith("execute") && !name.equals("executeBatch"));
+    }
+
+    /**
+     * @param counted - tells by the method name whether a call runs a statement
+     * @return - proxy which counts the statements and wraps the plain statements the target creates
+     */
+    private <T> T proxy(Class<T> type, T target, Predicate<String> counted) {
+        Object proxy = Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            String name = method.getName();
+            // Pools and Hibernate compare connections, a proxy is only equal to itself
+            if (name.equals("equals")) {
+                return self == args[0];
+            }
+            if (name.equals("hashCode")) {
+                return System.identityHashCode(self);
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+            if (counted.test(name)) {
+                counter.increment();
+            }
+            return name.equals("createStatement") ? countingStatement((Statement) result) : result;
+        });
+        return type.cast(proxy);
+    }
+}
@@ -2,47 +2,139 @@ package com.proovitoo.cinemate.controller;
 
 import com.proovitoo.cinemate.entity.*;
 import com.proovitoo.cinemate.repository.SeatRepository;
+import com.proovitoo.cinemate.service.CatalogResponseCache;
+import com.proovitoo.cinemate.service.CheckoutDeduplicator;
 import com.proovitoo.cinemate.service.CinemaService;
+import com.proovitoo.cinemate.service.IdempotencyKeyReusedException;
+import com.proovitoo.cinemate.service.InvalidRequestException;
+import com.proovitoo.cinemate.service.MovieFilter;
+import com.proovitoo.cinemate.service.OccupancyAnalytics;
+import com.proovitoo.cinemate.service.SeatNotAvailableException;
+import com.proovitoo.cinemate.service.SeatUpdatePublisher;
 import jakarta.annotation.PostConstruct;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
 
 @RestController
 @CrossOrigin(origins = "http://localhost:4200")
 @RequestMapping("/cinemate")
 public class CinemaController {
     private final CinemaService cinemaService;
+    private final CatalogResponseCache catalogResponseCache;
+    private final SeatUpdatePublisher seatUpdatePublisher;
+    private final OccupancyAnalytics occupancyAnalytics;
+    private final CheckoutDeduplicator checkoutDeduplicator;
 
-    public CinemaController(CinemaService cinemaService) {
+    public CinemaController(CinemaService cinemaService, CatalogResponseCache catalogResponseCache,
+                            SeatUpdatePublisher seatUpdatePublisher, OccupancyAnalytics occupancyAnalytics,
+                            CheckoutDeduplicator checkoutDeduplicator) {
         this.cinemaService = cinemaService;
+        this.catalogResponseCache = catalogResponseCache;
+        this.seatUpdatePublisher = seatUpdatePublisher;
+        this.occupancyAnalytics = occupancyAnalytics;
+        this.checkoutDeduplicator = checkoutDeduplicator;
     }
 
     /**
-     * Endpoint for movies
+     * Endpoint for movies, served pre-serialized with an ETag
      *
-     * @return - all the movies in the database
+     * @return - all the movies in the database, NOT MODIFIED if the client already has them
      */
     @GetMapping("/movies")
-    public List<Movie> getAllMovies() {
-        return cinemaService.getAllMovies();
+    public ResponseEntity<byte[]> getAllMovies() {
+        return catalogResponse(catalogResponseCache.getMovies());
     }
 
     /**
-     * Endpoint for filtered movies
+     * Endpoint for filtered movies.
+     * Every parameter can be repeated, values of one parameter are combined with OR
+     * and different parameters with AND, e.g. genre=Drama&genre=Comedy&age=PG-13&fromYear=2016
      *
-     * @param genre - genre which is selected
-     * @param age   - age restriction which is selected
+     * @param genre      - genres which are selected
+     * @param genreMatch - "any" (default) or "all" of the selected genres
+     * @param age        - age restrictions which are selected
+     * @param country    - countries which are selected
+     * @param fromYear   - first release year, inclusive
+     * @param toYear     - last release year, inclusive
      * @return - filtered movies
      */
     @GetMapping("/filter")
     public List<Movie> getFilteredMovies(
-            @RequestParam(required = false) String genre,
-            @RequestParam(required = false) String age
+            @RequestParam(required = false) Set<String> genre,
+            @RequestParam(defaultValue = "any") String genreMatch,
+            @RequestParam(required = false) Set<String> age,
+            @RequestParam(required = false) Set<String> country,
+            @RequestParam(required = false) Integer fromYear,
+            @RequestParam(required = false) Integer toYear
     ) {
-        return cinemaService.getFilteredMovies(genre, age);
+        return cinemaService.getFilteredMovies(new MovieFilter(genre, "all".equalsIgnoreCase(genreMatch), age, country, fromYear, toYear));
+    }
+
+    /**
+     * Endpoint for one page of movies with only the fields list screens need
+     *
+     * @param afterId   - nextAfterId of the previous page
+     * @param afterYear - nextAfterYear of the previous page when sorted by year
+     * @param sort      - "id" (default) or "year" for the newest movies first
+     * @param size      - page size, at most 100
+     * @return - page of movie summaries
+     */
+    @GetMapping("/movies/page")
+    public MoviePage getMoviePage(
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Integer afterYear,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return cinemaService.getMoviePage(afterId, afterYear, "year".equalsIgnoreCase(sort), size);
+    }
+
+    /**
+     * Endpoint for one page of filtered movies ordered by id, filters are the same as on /filter
+     *
+     * @param afterId - nextAfterId of the previous page
+     * @param size    - page size, at most 100
+     * @return - page of movie summaries
+     */
+    @GetMapping("/filter/page")
+    public MoviePage getFilteredMoviePage(
+            @RequestParam(required = false) Set<String> genre,
+            @RequestParam(defaultValue = "any") String genreMatch,
+            @RequestParam(required = false) Set<String> age,
+            @RequestParam(required = false) Set<String> country,
+            @RequestParam(required = false) Integer fromYear,
+            @RequestParam(required = false) Integer toYear,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        MovieFilter filter = new MovieFilter(genre, "all".equalsIgnoreCase(genreMatch), age, country, fromYear, toYear);
+        return cinemaService.getFilteredMoviePage(filter, afterId, size);
+    }
+
+    /**
+     * Endpoint for searching movies by title, cast, director, writer and plot, also for type-ahead
+     *
+     * @param q    - words to search for, the last one may be the beginning of a word
+     * @param size - how many movies are wanted, at most 100
+     * @return - movie summaries containing all the words, the most relevant first
+     */
+    @GetMapping("/search")
+    public List<MovieSummary> searchMovies(@RequestParam String q, @RequestParam(defaultValue = "10") int size) {
+        return cinemaService.searchMovies(q, size);
     }
 
     /**
@@ -62,21 +154,45 @@ public class CinemaController {
     }
 
     /**
-     * Endpoint for finding all genres
+     * Endpoint for movies that were watched by the same users as the movie
+     *
+     * @param id   - id of the movie
+     * @param size - how many movies are wanted, at most 100
+     * @return - related movie summaries, the most similar first
+     */
+    @GetMapping("/movies/{id}/related")
+    public List<MovieSummary> getRelatedMovies(@PathVariable Long id, @RequestParam(defaultValue = "10") int size) {
+        return cinemaService.getRelatedMovies(id, size);
+    }
+
+    /**
+     * Endpoint for personal recommendations built from the user history
+     *
+     * @param userId - anonymous id of the user, the same as in the user history
+     * @param size   - how many movies are wanted, at most 100
+     * @return - recommended movie summaries, the best first
+     */
+    @GetMapping("/recommendations")
+    public List<MovieSummary> getRecommendedMovies(@RequestParam String userId, @RequestParam(defaultValue = "10") int size) {
+        return cinemaService.getRecommendedMovies(userId, size);
+    }
+
+    /**
+     * Endpoint for finding all genres, served pre-serialized with an ETag
      * @return - all genres
      */
     @GetMapping("/genres")
-    public List<Genre> getAllGenres() {
-        return cinemaService.findAllGenres();
+    public ResponseEntity<byte[]> getAllGenres() {
+        return catalogResponse(catalogResponseCache.getGenres());
     }
 
     /**
-     * Endpoint for finding all age restrictions
+     * Endpoint for finding all age restrictions, served pre-serialized with an ETag
      * @return - all age restrictions
      */
     @GetMapping("/rated")
-    public List<String> getAllAgeRestrictions(){
-        return cinemaService.findAllAgeRestriction();
+    public ResponseEntity<byte[]> getAllAgeRestrictions(){
+        return catalogResponse(catalogResponseCache.getAgeRestrictions());
     }
 
     /**
@@ -91,41 +207,212 @@ public class CinemaController {
     }
 
     /**
-     * Endpoint for the recommended seats which are in one seance
+     * Endpoint for the recommended seats which are in one seance.
+     * The seat map is JSON by default, with Accept: application/x-cinemate-seatmap it is sent in binary
+     * (see SeatMapHttpMessageConverter)
      *
      * @param scheduleID      - id of a specific seance
      * @param numberOfTickets - how many tickets are being bought
-     * @return - recommended seats for exactly the number of tickets and for the seance with schedule id
+     * @param alternatives    - how many other non-overlapping blocks to rank, at most 10
+     * @return - seat map with recommended seats for exactly the number of tickets and for the seance with schedule id
      */
-
     @GetMapping("/seats")
-    public List<Seat> getSeanceSeats(@RequestParam Long scheduleID, @RequestParam int numberOfTickets) {
-        return cinemaService.getSeatsByScheduleId(scheduleID, numberOfTickets);
+    public SeatMap getSeanceSeats(@RequestParam Long scheduleID, @RequestParam int numberOfTickets,
+                                  @RequestParam(defaultValue = "0") int alternatives) {
+        return cinemaService.getSeatsByScheduleId(scheduleID, numberOfTickets, alternatives);
+    }
+
+    /**
+     * Endpoint for live seat changes of a seance as Server-Sent Events.
+     * The first "version" event has the current occupancy version, after that every "seats" event
+     * is a SeatUpdate with the seats that were bought, held or released
+     *
+     * @param scheduleID - id of a specific seance
+     * @return - event stream of the seance
+     */
+    @GetMapping(path = "/seats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSeanceSeats(@RequestParam Long scheduleID) {
+        return seatUpdatePublisher.subscribe(scheduleID);
     }
 
     /**
-     * Endpoint for creating user history
+     * Endpoint for creating user history, the history is written in the background
      *
      * @param userHistory - the history which we would like to save
-     * @return - response entity CREATED
+     * @return - response entity ACCEPTED, SERVICE UNAVAILABLE when too much history is waiting to be written
      */
     @PostMapping("/userHistory")
-    public ResponseEntity<UserHistory> createUserHistory(@RequestBody UserHistory userHistory) {
-        UserHistory savedUserHistory = cinemaService.save(userHistory);
-        return new ResponseEntity<>(savedUserHistory, HttpStatus.CREATED);
+    public ResponseEntity<Void> createUserHistory(@RequestBody UserHistory userHistory) {
+        if (!cinemaService.save(userHistory)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * Endpoint for holding seats while the tickets are being bought
+     *
+     * @param request - seance and the seats that are selected by the user
+     * @return - response entity CREATED with the hold, CONFLICT if some of the seats are taken or held
+     */
+    @PostMapping("/holds")
+    public ResponseEntity<SeatHold> holdSeats(@RequestBody SeatHoldRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(cinemaService.holdSeats(request.scheduleId(), request.seatIds()));
+    }
+
+    /**
+     * Endpoint for releasing held seats
+     *
+     * @param holdId - id of the hold
+     * @return - response entity NO CONTENT, NOT FOUND if the hold has expired
+     */
+    @DeleteMapping("/holds/{holdId}")
+    public ResponseEntity<Void> releaseHold(@PathVariable UUID holdId) {
+        return cinemaService.releaseHold(holdId) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
     }
 
     /**
      * Endpoint for updating seat occupancy after the tickets are bought
      *
      * @param seatIds - the seats that are selected by the user
-     * @return - response entity ACCEPTED
+     * @param holdId  - hold of the seats, if the user held them
+     * @return - response entity ACCEPTED, CONFLICT if some of the seats are already taken or held by someone else
      */
     @PostMapping("/update-occupancy")
-    public ResponseEntity<HttpStatus> updateSeatOccupancy(@RequestBody List<Long> seatIds) {
-        cinemaService.updateSeatOccupancy(seatIds);
+    public ResponseEntity<HttpStatus> updateSeatOccupancy(@RequestBody List<Long> seatIds,
+                                                          @RequestParam(required = false) UUID holdId) {
+        cinemaService.updateSeatOccupancy(seatIds, holdId);
         return ResponseEntity.ok(HttpStatus.ACCEPTED);
     }
 
+    /**
+     * Endpoint for buying the seats of one or more seances together.
+     * Retries with the same Idempotency-Key get the result of the first request without booking again
+     *
+     * @param idempotencyKey - unique key of the checkout chosen by the client, at most 255 characters
+     * @param request        - seats of every seance with their holds
+     * @return - response entity CREATED with the checkout, CONFLICT if some of the seats could not be bought,
+     * UNPROCESSABLE ENTITY if the key was used for another request
+     */
+    @PostMapping("/checkout")
+    public ResponseEntity<Checkout> checkout(@RequestHeader("Idempotency-Key") String idempotencyKey,
+                                             @RequestBody CheckoutRequest request) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > 255) {
+            throw new InvalidRequestException("Idempotency-Key must have 1 to 255 characters");
+        }
+        CheckoutDeduplicator.Result result = checkoutDeduplicator.execute(idempotencyKey, request,
+                () -> cinemaService.checkout(request));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header("Idempotent-Replayed", String.valueOf(result.replayed()))
+                .body(result.checkout());
+    }
+
+    /**
+     * Endpoint for the tickets sold for one seance, served from in-memory counters
+     *
+     * @param scheduleId - id of the seance
+     * @return - sold tickets and fill rate, NOT FOUND if there is no such seance
+     */
+    @GetMapping("/analytics/schedules/{scheduleId}")
+    public ResponseEntity<ScheduleOccupancy> getScheduleOccupancy(@PathVariable Long scheduleId) {
+        ScheduleOccupancy occupancy = occupancyAnalytics.getSchedule(scheduleId);
+        return occupancy != null ? ResponseEntity.ok(occupancy) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Endpoint for the tickets sold for every seance of a day
+     *
+     * @param date - day in ISO format, today by default
+     * @return - sold tickets and fill rates ordered by the start time
+     */
+    @GetMapping("/analytics/schedules")
+    public List<ScheduleOccupancy> getScheduleOccupancies(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return occupancyAnalytics.getSchedules(date != null ? date : LocalDate.now());
+    }
+
+    /**
+     * Endpoint for the tickets sold for every movie on a day
+     *
+     * @param date - day in ISO format, today by default
+     * @return - sold tickets and fill rates, the best selling movie first
+     */
+    @GetMapping("/analytics/movies")
+    public List<MovieOccupancy> getMovieOccupancies(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return occupancyAnalytics.getMovies(date != null ? date : LocalDate.now());
+    }
+
+    /**
+     * Endpoint for the tickets sold for every hour of a day that has seances
+     *
+     * @param date - day in ISO format, today by default
+     * @return - sold tickets and fill rates in the order of the hours
+     */
+    @GetMapping("/analytics/slots")
+    public List<SlotOccupancy> getSlotOccupancies(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return occupancyAnalytics.getSlots(date != null ? date : LocalDate.now());
+    }
+
+    /**
+     * Builds a response of the cached catalog bytes.
+     * Spring answers NOT MODIFIED itself when If-None-Match matches the ETag
+     *
+     * @param response - serialized catalog
+     * @return - response entity OK with the JSON body
+     */
+    private ResponseEntity<byte[]> catalogResponse(CatalogResponseCache.CatalogResponse response) {
+        return ResponseEntity.ok()
+                .eTag(response.eTag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(response.body());
+    }
+
+    /**
+     * Rejects the purchase when the seats were taken by someone else
+     *
+     * @param exception - seats that are not available
+     * @return - response entity CONFLICT with the ids of the unavailable seats
+     */
+    @ExceptionHandler(SeatNotAvailableException.class)
+    public ResponseEntity<Map<String, Object>> handleSeatNotAvailable(SeatNotAvailableException exception) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("message", exception.getMessage(), "seatIds", exception.getSeatIds()));
+    }
+
+    /**
+     * @param exception - idempotency key that was sent with another request
+     * @return - response entity UNPROCESSABLE ENTITY
+     */
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<Map<String, Object>> handleIdempotencyKeyReused(IdempotencyKeyReusedException exception) {
+        return ResponseEntity.unprocessableEntity().body(Map.of("message", exception.getMessage()));
+    }
+
+    /**
+     * @param exception - invalid request
+     * @return - response entity BAD REQUEST
+     */
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidRequest(InvalidRequestException exception) {
+        return ResponseEntity.badRequest()
+                .body(Map.of("message", Objects.requireNonNullElse(exception.getMessage(), "Invalid request")));
+    }
+
+    /**
+     * Concurrent purchases of the same seats that could not be resolved in time are also conflicts
+     *
+     * @param exception - locking failure
+     * @return - response entity CONFLICT
+     */
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleConcurrencyFailure(ConcurrencyFailureException exception) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("message", "Seats are being bought by someone else"));
+    }
+
 
 }
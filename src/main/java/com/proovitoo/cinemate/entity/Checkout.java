@@ -0,0 +1,15 @@
+package com.proovitoo.cinemate.entity;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Completed checkout, a retry with the same idempotency key gets the same checkout
+ *
+ * @param checkoutId  - id of the checkout
+ * @param items       - seats that were bought
+ * @param completedAt - when the seats were bought
+ */
+public record Checkout(UUID checkoutId, List<CheckoutItem> items, Instant completedAt) {
+}
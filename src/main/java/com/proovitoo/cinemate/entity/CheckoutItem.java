@@ -0,0 +1,14 @@
+package com.proovitoo.cinemate.entity;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Seats of one seance in a checkout
+ *
+ * @param scheduleId - id of the seance
+ * @param seatIds    - seats that are being bought
+ * @param holdId     - hold of the seats, null if they were not held
+ */
+public record CheckoutItem(Long scheduleId, List<Long> seatIds, UUID holdId) {
+}
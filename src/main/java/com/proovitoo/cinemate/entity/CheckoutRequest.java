@@ -0,0 +1,9 @@
+package com.proovitoo.cinemate.entity;
+
+import java.util.List;
+
+/**
+ * Seats of one or more seances that are bought together, all of them or none
+ */
+public record CheckoutRequest(List<CheckoutItem> items) {
+}
@@ -0,0 +1,36 @@
+package com.proovitoo.cinemate.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+@Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "HALLS")
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class Hall {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String name;
+
+    /**
+     * Rows from the screen backwards separated by '/', in every row 'S' is a seat,
+     * '_' an aisle and '.' a missing seat. Seat numbers are the positions in the row.
+     * The layout is not changed once schedules use the hall.
+     */
+    @Column(length = 10000)
+    private String layout;
+
+    // Seat the recommendations aim at, the middle of the hall when not set
+    private Integer centerRow;
+    private Integer centerSeat;
+}
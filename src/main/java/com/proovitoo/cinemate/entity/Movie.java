@@ -6,11 +6,15 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.Set;
 
 @Entity
-@Table(name="MOVIES")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name="MOVIES", indexes = @Index(name = "idx_movies_release_year_desc_id_desc", columnList = "releaseYear DESC, id DESC"))
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
@@ -36,6 +40,7 @@ public class Movie {
     private String rtRating;
 
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(
             name = "MOVIE_GENRE",
             joinColumns = @JoinColumn(name = "movie_id"),
@@ -0,0 +1,13 @@
+package com.proovitoo.cinemate.entity;
+
+/**
+ * Tickets sold for all the seances of a movie on one day
+ *
+ * @param movieId  - id of the movie
+ * @param seances  - number of seances
+ * @param sold     - number of occupied seats
+ * @param seats    - number of seats in all the seances
+ * @param fillRate - sold / seats
+ */
+public record MovieOccupancy(Long movieId, long seances, long sold, long seats, double fillRate) {
+}
@@ -0,0 +1,10 @@
+package com.proovitoo.cinemate.entity;
+
+import java.util.List;
+
+/**
+ * One page of movies with the keys of the last movie.
+ * The next page is requested with afterId (and afterYear when sorted by year), both are null on the last page
+ */
+public record MoviePage(List<MovieSummary> movies, Long nextAfterId, Integer nextAfterYear) {
+}
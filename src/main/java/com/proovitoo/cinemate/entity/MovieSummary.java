@@ -0,0 +1,13 @@
+package com.proovitoo.cinemate.entity;
+
+/**
+ * Slim view of a movie for list screens, details are on /movies/{id}
+ */
+public record MovieSummary(Long id, String movieName, String photo, String imdbRating, int releaseYear,
+                           String ageRestriction, String genreNames) {
+
+    public static MovieSummary of(Movie movie) {
+        return new MovieSummary(movie.getId(), movie.getMovieName(), movie.getPhoto(), movie.getImdbRating(),
+                movie.getReleaseYear(), movie.getAgeRestriction(), movie.getGenreNames());
+    }
+}
@@ -1,5 +1,6 @@
 package com.proovitoo.cinemate.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 import lombok.Setter;
@@ -7,6 +8,7 @@ import lombok.Setter;
 import java.util.List;
 
 @Getter
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class OmdbMovieResponse {
     @JsonProperty("Title")
     private String title;
@@ -34,7 +36,11 @@ public class OmdbMovieResponse {
     @JsonProperty("Ratings")
     private List<Rating> ratings;
 
+    @JsonProperty("Response")
+    private String response;
+
     @Getter
+    @JsonIgnoreProperties(ignoreUnknown = true)
     public static class Rating {
         @JsonProperty("Source")
         private String source;
@@ -0,0 +1,17 @@
+package com.proovitoo.cinemate.entity;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tickets sold for one seance
+ *
+ * @param scheduleId - id of the seance
+ * @param movieId    - id of the movie
+ * @param dateTime   - start of the seance
+ * @param sold       - number of occupied seats
+ * @param seats      - number of seats in the hall
+ * @param fillRate   - sold / seats
+ */
+public record ScheduleOccupancy(Long scheduleId, Long movieId, LocalDateTime dateTime, long sold, long seats,
+                                double fillRate) {
+}
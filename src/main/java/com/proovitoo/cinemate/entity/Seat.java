@@ -1,5 +1,6 @@
 package com.proovitoo.cinemate.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -13,13 +14,21 @@ import lombok.Setter;
 @Getter
 @Setter
 public class Seat {
+    /** Ids are taken from the sequence in blocks of this size (also used by SeatGenerator) */
+    public static final int ID_BLOCK_SIZE = 1000;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seat_seq")
+    @SequenceGenerator(name = "seat_seq", sequenceName = "seat_seq", allocationSize = ID_BLOCK_SIZE)
     private Long id;
     private int seatRow;
     private int seatNumber;
     private boolean occupied;
+    @Transient
     private boolean recommended;
+    @Version
+    @JsonIgnore
+    private long version;
 
     @ManyToOne
     private Schedule schedule;
@@ -0,0 +1,16 @@
+package com.proovitoo.cinemate.entity;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Seats that are reserved for one user until they are bought or the hold expires
+ *
+ * @param holdId     - id of the hold, passed to update-occupancy when the seats are bought
+ * @param scheduleId - id of the seance
+ * @param seatIds    - ids of the held seats
+ * @param expiresAt  - when the seats are released
+ */
+public record SeatHold(UUID holdId, Long scheduleId, List<Long> seatIds, Instant expiresAt) {
+}
@@ -0,0 +1,9 @@
+package com.proovitoo.cinemate.entity;
+
+import java.util.List;
+
+/**
+ * Seats of one seance that should be held
+ */
+public record SeatHoldRequest(Long scheduleId, List<Long> seatIds) {
+}
@@ -0,0 +1,32 @@
+package com.proovitoo.cinemate.entity;
+
+import java.util.List;
+
+/**
+ * Compact seat map of a seance.
+ * Positions are numbered row by row: position = (seatRow - 1) * seatsPerRow + (seatNumber - 1).
+ * seats, occupied and held are bitmaps over the positions where position i is bit i % 8 of byte i / 8,
+ * in JSON they are base64 strings. seatIds holds the ids of the existing seats in position order
+ * as pairs of the first id and the length of a run of consecutive ids.
+ *
+ * @param scheduleId  - id of the seance
+ * @param version     - occupancy version, changes whenever seats are bought
+ * @param rows        - number of rows
+ * @param seatsPerRow - number of positions in a row
+ * @param seats       - positions that have a seat
+ * @param occupied    - positions that are occupied
+ * @param held        - positions that are held by someone who is buying them
+ * @param seatIds     - run-length encoded seat ids
+ * @param recommended - recommended blocks from front to back, several when the group is split over
+ *                    adjacent rows, empty if the group does not fit
+ * @param alternatives - next best blocks that do not overlap the recommended block or each other, best first
+ */
+public record SeatMap(Long scheduleId, long version, int rows, int seatsPerRow, byte[] seats, byte[] occupied,
+                      byte[] held, long[] seatIds, List<Block> recommended, List<List<Block>> alternatives) {
+
+    /**
+     * Contiguous seats in one row
+     */
+    public record Block(int row, int firstSeat, int size) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.proovitoo.cinemate.entity;
+
+import java.util.List;
+
+/**
+ * Changes of the seats of a seance, coalesced over a short window and pushed to the subscribers
+ *
+ * @param scheduleId - id of the seance
+ * @param version    - occupancy version of the seance after the changes, the same as in SeatMap
+ * @param occupied   - ids of the seats that were bought
+ * @param held       - ids of the seats that were held
+ * @param released   - ids of the seats whose hold was released or expired
+ */
+public record SeatUpdate(Long scheduleId, long version, List<Long> occupied, List<Long> held, List<Long> released) {
+}
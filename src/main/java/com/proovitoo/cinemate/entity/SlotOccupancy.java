@@ -0,0 +1,15 @@
+package com.proovitoo.cinemate.entity;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tickets sold for the seances that start within one hour
+ *
+ * @param slot     - start of the hour
+ * @param seances  - number of seances
+ * @param sold     - number of occupied seats
+ * @param seats    - number of seats in all the seances
+ * @param fillRate - sold / seats
+ */
+public record SlotOccupancy(LocalDateTime slot, long seances, long sold, long seats, double fillRate) {
+}
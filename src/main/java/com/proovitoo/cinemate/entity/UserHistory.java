@@ -17,6 +17,9 @@ public class  UserHistory {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    /** Anonymous id of the user, e.g. generated by the browser */
+    private String userId;
+
     @ManyToOne
     private Schedule schedule;
 }
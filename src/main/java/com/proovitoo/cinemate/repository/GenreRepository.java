@@ -2,7 +2,10 @@ package com.proovitoo.cinemate.repository;
 
 import com.proovitoo.cinemate.entity.Genre;
 import com.proovitoo.cinemate.entity.Movie;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,6 +13,7 @@ import java.util.Set;
 
 @Repository
 public interface GenreRepository extends JpaRepository<Genre, Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Genre findGenreByName(String name);
     List<Genre> findAll();
 }
@@ -0,0 +1,14 @@
+package com.proovitoo.cinemate.repository;
+
+import com.proovitoo.cinemate.entity.Hall;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface HallRepository extends JpaRepository<Hall, Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Hall findHallByName(String name);
+}
@@ -1,8 +1,13 @@
 package com.proovitoo.cinemate.repository;
 
 import com.proovitoo.cinemate.entity.Movie;
+import com.proovitoo.cinemate.entity.MovieSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -11,11 +16,21 @@ import java.util.List;
 @Repository
 public interface MovieRepository extends JpaRepository<Movie, Long> {
 
-    @Query("SELECT DISTINCT m FROM Movie m JOIN m.genres g " +
-            "WHERE (:genre IS NULL OR g.name = :genre) " +
-            "AND (:age IS NULL OR m.ageRestriction = :age)")
-    List<Movie> findMoviesByFilters(@Param("genre") String genre,
-                                    @Param("age") String age);
-
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Movie findMovieById(Long id);
+
+    @Query("SELECT DISTINCT m.ageRestriction FROM Movie m ORDER BY m.ageRestriction")
+    List<String> findDistinctAgeRestrictions();
+
+    @Query("SELECT new com.proovitoo.cinemate.entity.MovieSummary(m.id, m.movieName, m.photo, m.imdbRating, " +
+            "m.releaseYear, m.ageRestriction, m.genreNames) FROM Movie m " +
+            "WHERE m.id > :afterId ORDER BY m.id")
+    List<MovieSummary> findSummariesAfterId(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT new com.proovitoo.cinemate.entity.MovieSummary(m.id, m.movieName, m.photo, m.imdbRating, " +
+            "m.releaseYear, m.ageRestriction, m.genreNames) FROM Movie m " +
+            "WHERE m.releaseYear <= :afterYear AND (m.releaseYear < :afterYear OR m.id < :afterId) " +
+            "ORDER BY m.releaseYear DESC, m.id DESC")
+    List<MovieSummary> findSummariesAfterYear(@Param("afterYear") int afterYear, @Param("afterId") long afterId,
+                                              Pageable pageable);
 }
@@ -1,13 +1,17 @@
 package com.proovitoo.cinemate.repository;
 
 import com.proovitoo.cinemate.entity.Schedule;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface ScheduleRepository extends JpaRepository<Schedule,Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Schedule> findByMovieId(Long movie_id);
 
 }
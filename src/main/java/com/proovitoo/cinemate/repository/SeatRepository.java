@@ -2,8 +2,12 @@ package com.proovitoo.cinemate.repository;
 
 import com.proovitoo.cinemate.entity.Seat;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -11,4 +15,24 @@ public interface SeatRepository extends JpaRepository<Seat, Long> {
     List<Seat> findByScheduleId(Long scheduleId);
     Seat findBySeatRowAndSeatNumber(int seatRow, int seatNumber);
     Seat findBySeatRowAndSeatNumberAndScheduleId(int seatRow, int seatNumber, Long scheduleId);
+
+    @Query("SELECT s.id AS id, s.schedule.id AS scheduleId, s.occupied AS occupied FROM Seat s WHERE s.id IN :ids")
+    List<SeatState> findSeatStates(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Occupies all the given seats that are still free with one statement.
+     * Row locks make the check and the update atomic, so a seat can be occupied only once
+     *
+     * @param ids - ids of the seats
+     * @return - how many seats were occupied
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Seat s SET s.occupied = true, s.version = s.version + 1 WHERE s.id IN :ids AND s.occupied = false")
+    int occupyFreeSeats(@Param("ids") Collection<Long> ids);
+
+    interface SeatState {
+        Long getId();
+        Long getScheduleId();
+        Boolean getOccupied();
+    }
 }
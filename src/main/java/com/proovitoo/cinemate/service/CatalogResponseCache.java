@@ -0,0 +1,101 @@
+package com.proovitoo.cinemate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proovitoo.cinemate.repository.GenreRepository;
+import com.proovitoo.cinemate.repository.MovieRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the catalog endpoints (movies, genres and age restrictions) serialized in memory.
+ * The bytes are built once and rebuilt lazily after the catalog changes.
+ */
+@Component
+public class CatalogResponseCache {
+    private final MovieRepository movieRepository;
+    private final GenreRepository genreRepository;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicLong generation = new AtomicLong();
+    // Not synchronized, a virtual thread waiting for the database inside a monitor would pin its carrier
+    private final Lock buildLock = new ReentrantLock();
+    private volatile Catalog catalog;
+
+    public CatalogResponseCache(MovieRepository movieRepository, GenreRepository genreRepository, ObjectMapper objectMapper) {
+        this.movieRepository = movieRepository;
+        this.genreRepository = genreRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Serialized response with its strong ETag
+     * @param body - JSON bytes
+     * @param eTag - quoted hash of the bytes
+     */
+    public record CatalogResponse(byte[] body, String eTag) {
+    }
+
+    private record Catalog(CatalogResponse movies, CatalogResponse genres, CatalogResponse ageRestrictions) {
+    }
+
+    public CatalogResponse getMovies() {
+        return catalog().movies();
+    }
+
+    public CatalogResponse getGenres() {
+        return catalog().genres();
+    }
+
+    public CatalogResponse getAgeRestrictions() {
+        return catalog().ageRestrictions();
+    }
+
+    /**
+     * Drops the serialized catalog, it is built again on the next request
+     * @param event - saved movie
+     */
+    @EventListener
+    public void onMovieSaved(MovieSavedEvent event) {
+        generation.incrementAndGet();
+        catalog = null;
+    }
+
+    private Catalog catalog() {
+        Catalog current = catalog;
+        if (current == null) {
+            buildLock.lock();
+            try {
+                current = catalog;
+                if (current == null) {
+                    long builtGeneration = generation.get();
+                    current = new Catalog(
+                            serialize(movieRepository.findAll()),
+                            serialize(genreRepository.findAll()),
+                            serialize(movieRepository.findDistinctAgeRestrictions()));
+                    // A movie saved while building makes this catalog outdated, it is served once but not kept
+                    if (generation.get() == builtGeneration) {
+                        catalog = current;
+                    }
+                }
+            } finally {
+                buildLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    private CatalogResponse serialize(Object value) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(value);
+            return new CatalogResponse(body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the catalog", e);
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Seat;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact snapshot of the catalog (genres, halls, movies and schedules) and of the seat occupancy.
+ * The snapshot is one gzipped binary file, restoring it inserts everything with JDBC batches and keeps the ids,
+ * so startup does not depend on OMDb or on generating the seats again. Seats are stored per schedule as
+ * runs of consecutive ids, their positions and an occupancy bitmap.
+ * Snapshots are written after the import and on shutdown, set cinemate.snapshot.path to enable them.
+ */
+@Component
+public class CatalogSnapshot {
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshot.class);
+    private static final int MAGIC = 0x43534e50;
+    private static final int FORMAT_VERSION = 2;
+    private static final int BATCH_SIZE = 1000;
+    private static final int SCHEDULE_ID_BLOCK_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Path path;
+
+    public CatalogSnapshot(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+                           @Value("${cinemate.snapshot.path:}") String path) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.path = path.isBlank() ? null : Path.of(path);
+    }
+
+    public boolean isEnabled() {
+        return path != null;
+    }
+
+    /**
+     * Writes the snapshot, the file is replaced atomically
+     */
+    public void save() {
+        if (path == null) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temporary = Files.createTempFile(parent, "cinemate", ".snapshot.tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temporary))))) {
+                write(out);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Wrote snapshot {} in {} ms", path, (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException e) {
+            log.warn("Could not write snapshot {}", path, e);
+        }
+    }
+
+    /**
+     * Keeps the bookings of an in-memory database for the next start
+     */
+    @PreDestroy
+    public void saveOnShutdown() {
+        if (path == null) {
+            return;
+        }
+        Integer movies = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM movies", Integer.class);
+        if (movies != null && movies > 0) {
+            save();
+        }
+    }
+
+    /**
+     * Loads the snapshot into an empty database.
+     * A snapshot that can not be read is only logged, what was inserted from it is rolled back
+     *
+     * @return - false if there is no snapshot or it can not be read
+     */
+    @Transactional
+    public boolean restore() {
+        if (path == null || !Files.isRegularFile(path)) {
+            return false;
+        }
+        long started = System.nanoTime();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(path))))) {
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != FORMAT_VERSION) {
+                log.warn("Snapshot {} has an unknown format, it is ignored", path);
+                return false;
+            }
+            long seats = read(in);
+            // The rows were written past Hibernate, so nothing it cached before may be served again
+            entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+            log.info("Restored {} seats from snapshot {} in {} ms", seats, path, (System.nanoTime() - started) / 1_000_000);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read snapshot {}, it is ignored", path, e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return false;
+        }
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+
+        List<Object[]> genres = rows("SELECT id, name FROM genres ORDER BY id");
+        out.writeInt(genres.size());
+        for (Object[] genre : genres) {
+            writeLong(out, genre[0]);
+            writeString(out, genre[1]);
+        }
+
+        List<Object[]> halls = rows("SELECT id, name, layout, center_row, center_seat FROM halls ORDER BY id");
+        out.writeInt(halls.size());
+        for (Object[] hall : halls) {
+            writeLong(out, hall[0]);
+            writeString(out, hall[1]);
+            writeString(out, hall[2]);
+            writeLong(out, hall[3]);
+            writeLong(out, hall[4]);
+        }
+
+        List<Object[]> movies = rows("SELECT id, movie_name, running_time_in_minutes, description, age_restriction, "
+                + "release_year, photo, director, writer, actors, country, imdb_rating, rt_rating, genre_names "
+                + "FROM movies ORDER BY id");
+        out.writeInt(movies.size());
+        for (Object[] movie : movies) {
+            writeLong(out, movie[0]);
+            writeString(out, movie[1]);
+            out.writeInt(((Number) movie[2]).intValue());
+            writeString(out, movie[3]);
+            writeString(out, movie[4]);
+            out.writeInt(((Number) movie[5]).intValue());
+            for (int i = 6; i < movie.length; i++) {
+                writeString(out, movie[i]);
+            }
+        }
+
+        List<Object[]> movieGenres = rows("SELECT movie_id, genre_id FROM movie_genre ORDER BY movie_id, genre_id");
+        out.writeInt(movieGenres.size());
+        for (Object[] movieGenre : movieGenres) {
+            writeLong(out, movieGenre[0]);
+            writeLong(out, movieGenre[1]);
+        }
+
+        List<Object[]> schedules = rows("SELECT id, movie_id, hall_id, date_time, language, subtitles FROM schedule ORDER BY id");
+        out.writeInt(schedules.size());
+        for (Object[] schedule : schedules) {
+            writeLong(out, schedule[0]);
+            writeLong(out, schedule[1]);
+            writeLong(out, schedule[2]);
+            writeString(out, schedule[3] instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : schedule[3]);
+            writeString(out, schedule[4]);
+            writeString(out, schedule[5]);
+        }
+        writeSeats(out);
+    }
+
+    /**
+     * Seats grouped by schedule, every group is preceded by true and the last one is followed by false.
+     * A group has the schedule id, the number of seats, the id runs (first id, length), the row and seat number
+     * of every seat and the occupancy bitmap. The seats are streamed, only the schedule being written is in memory
+     */
+    private void writeSeats(DataOutputStream out) throws IOException {
+        SeatGroupWriter writer = new SeatGroupWriter(out);
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement("SELECT schedule_id, id, seat_row, seat_number, "
+                        + "occupied FROM seat WHERE schedule_id IS NOT NULL ORDER BY schedule_id, id");
+                statement.setFetchSize(BATCH_SIZE);
+                return statement;
+            }, writer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        out.writeBoolean(false);
+    }
+
+    /**
+     * @return - number of restored seats
+     */
+    private long read(DataInputStream in) throws IOException {
+        List<Object[]> genres = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            genres.add(new Object[]{readLong(in), readString(in)});
+        }
+        batch("INSERT INTO genres (id, name) VALUES (?, ?)", genres);
+
+        List<Object[]> halls = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            halls.add(new Object[]{readLong(in), readString(in), readString(in), readInteger(in), readInteger(in)});
+        }
+        batch("INSERT INTO halls (id, name, layout, center_row, center_seat) VALUES (?, ?, ?, ?, ?)", halls);
+
+        List<Object[]> movies = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            Object[] movie = new Object[14];
+            movie[0] = readLong(in);
+            movie[1] = readString(in);
+            movie[2] = in.readInt();
+            movie[3] = readString(in);
+            movie[4] = readString(in);
+            movie[5] = in.readInt();
+            for (int j = 6; j < movie.length; j++) {
+                movie[j] = readString(in);
+            }
+            movies.add(movie);
+        }
+        batch("INSERT INTO movies (id, movie_name, running_time_in_minutes, description, age_restriction, release_year, "
+                + "photo, director, writer, actors, country, imdb_rating, rt_rating, genre_names) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", movies);
+
+        List<Object[]> movieGenres = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            movieGenres.add(new Object[]{readLong(in), readLong(in)});
+        }
+        batch("INSERT INTO movie_genre (movie_id, genre_id) VALUES (?, ?)", movieGenres);
+
+        List<Object[]> schedules = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            Object[] schedule = new Object[]{readLong(in), readLong(in), readLong(in), readString(in), readString(in), readString(in)};
+            schedule[3] = schedule[3] == null ? null : LocalDateTime.parse((String) schedule[3]);
+            schedules.add(schedule);
+        }
+        batch("INSERT INTO schedule (id, movie_id, hall_id, date_time, language, subtitles) VALUES (?, ?, ?, ?, ?, ?)", schedules);
+
+        long seats = readSeats(in);
+        restartIdentity("genres", genres);
+        restartIdentity("halls", halls);
+        restartIdentity("movies", movies);
+        restartSequence("schedule_seq", "schedule", SCHEDULE_ID_BLOCK_SIZE);
+        restartSequence("seat_seq", "seat", Seat.ID_BLOCK_SIZE);
+        return seats;
+    }
+
+    private long readSeats(DataInputStream in) throws IOException {
+        long total = 0;
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        while (in.readBoolean()) {
+            long scheduleId = in.readLong();
+            int count = in.readInt();
+            long[] ids = new long[count];
+            int position = 0;
+            for (int run = in.readInt(); run > 0; run--) {
+                long firstId = in.readLong();
+                int length = in.readInt();
+                for (int i = 0; i < length; i++) {
+                    ids[position++] = firstId + i;
+                }
+            }
+            int[] seatRows = new int[count];
+            int[] seatNumbers = new int[count];
+            for (int i = 0; i < count; i++) {
+                seatRows[i] = in.readUnsignedShort();
+                seatNumbers[i] = in.readUnsignedShort();
+            }
+            byte[] occupied = new byte[(count + 7) / 8];
+            in.readFully(occupied);
+            for (int i = 0; i < count; i++) {
+                boolean isOccupied = (occupied[i >>> 3] & (1 << (i & 7))) != 0;
+                batch.add(new Object[]{ids[i], seatRows[i], seatNumbers[i], isOccupied, isOccupied ? 1L : 0L, scheduleId});
+                if (batch.size() == BATCH_SIZE) {
+                    batch("INSERT INTO seat (id, seat_row, seat_number, occupied, version, schedule_id) VALUES (?, ?, ?, ?, ?, ?)", batch);
+                    batch.clear();
+                }
+            }
+            total += count;
+        }
+        batch("INSERT INTO seat (id, seat_row, seat_number, occupied, version, schedule_id) VALUES (?, ?, ?, ?, ?, ?)", batch);
+        return total;
+    }
+
+    private void batch(String sql, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(sql, rows, BATCH_SIZE, CatalogSnapshot::setValues);
+    }
+
+    private static void setValues(PreparedStatement ps, Object[] row) throws SQLException {
+        for (int i = 0; i < row.length; i++) {
+            if (row[i] == null) {
+                ps.setNull(i + 1, Types.NULL);
+            } else {
+                ps.setObject(i + 1, row[i]);
+            }
+        }
+    }
+
+    private void restartIdentity(String table, List<Object[]> rows) {
+        long max = rows.stream().mapToLong(row -> (Long) row[0]).max().orElse(0);
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + (max + 1));
+    }
+
+    /**
+     * A sequence value v owns the ids (v - block size, v], so the next value has to be a block above the largest id
+     */
+    private void restartSequence(String sequence, String table, int blockSize) {
+        Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (max + blockSize));
+    }
+
+    private List<Object[]> rows(String sql) {
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            Object[] row = new Object[rs.getMetaData().getColumnCount()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = rs.getObject(i + 1);
+            }
+            return row;
+        });
+    }
+
+    private static void writeString(DataOutputStream out, Object value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeLong(DataOutputStream out, Object value) throws IOException {
+        out.writeLong(value == null ? Long.MIN_VALUE : ((Number) value).longValue());
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        long value = in.readLong();
+        return value == Long.MIN_VALUE ? null : value;
+    }
+
+    private static Integer readInteger(DataInputStream in) throws IOException {
+        Long value = readLong(in);
+        return value == null ? null : value.intValue();
+    }
+
+    /**
+     * Collects the seats of one schedule from the ordered rows and writes them as a group once the schedule changes
+     */
+    private static final class SeatGroupWriter implements RowCallbackHandler {
+        private final DataOutputStream out;
+        private long scheduleId;
+        private int count;
+        private long[] ids = new long[256];
+        private int[] seatRows = new int[256];
+        private int[] seatNumbers = new int[256];
+        private byte[] occupied = new byte[32];
+
+        private SeatGroupWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long rowScheduleId = rs.getLong(1);
+            try {
+                if (count > 0 && rowScheduleId != scheduleId) {
+                    flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            scheduleId = rowScheduleId;
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                seatRows = Arrays.copyOf(seatRows, count * 2);
+                seatNumbers = Arrays.copyOf(seatNumbers, count * 2);
+                occupied = Arrays.copyOf(occupied, count / 4);
+            }
+            ids[count] = rs.getLong(2);
+            seatRows[count] = rs.getInt(3);
+            seatNumbers[count] = rs.getInt(4);
+            if (rs.getBoolean(5)) {
+                occupied[count >>> 3] |= (byte) (1 << (count & 7));
+            }
+            count++;
+        }
+
+        /**
+         * Writes the collected schedule, if there is one
+         */
+        void flush() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            out.writeBoolean(true);
+            out.writeLong(scheduleId);
+            out.writeInt(count);
+            int runs = 1;
+            for (int i = 1; i < count; i++) {
+                if (ids[i] != ids[i - 1] + 1) {
+                    runs++;
+                }
+            }
+            out.writeInt(runs);
+            int runStart = 0;
+            for (int i = 1; i <= count; i++) {
+                if (i == count || ids[i] != ids[i - 1] + 1) {
+                    out.writeLong(ids[runStart]);
+                    out.writeInt(i - runStart);
+                    runStart = i;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeShort(seatRows[i]);
+                out.writeShort(seatNumbers[i]);
+            }
+            int bitmapLength = (count + 7) / 8;
+            out.write(occupied, 0, bitmapLength);
+            Arrays.fill(occupied, 0, bitmapLength, (byte) 0);
+            count = 0;
+        }
+    }
+}
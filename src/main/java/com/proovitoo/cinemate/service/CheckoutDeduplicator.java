@@ -0,0 +1,143 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Checkout;
+import com.proovitoo.cinemate.entity.CheckoutRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the outcome of every checkout by its idempotency key, so retries are answered from memory.
+ * A retry that arrives while the first request is still running waits for it instead of booking again.
+ * Checkouts and rejected purchases are remembered, other failures are forgotten so the client can retry.
+ * The store keeps at most the configured number of keys, each of them for the configured time.
+ */
+@Component
+public class CheckoutDeduplicator {
+    private final Lock lock = new ReentrantLock();
+    private final Map<String, Entry> entries;
+    private final long ttlNanos;
+
+    public CheckoutDeduplicator(@Value("${cinemate.checkout.idempotency-capacity:100000}") int capacity,
+                                @Value("${cinemate.checkout.idempotency-ttl:24h}") Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param checkout - checkout of the request
+     * @param replayed - true if the checkout was done by an earlier request with the same key
+     */
+    public record Result(Checkout checkout, boolean replayed) {
+    }
+
+    /**
+     * Runs the checkout once per idempotency key
+     *
+     * @param key      - idempotency key sent by the client
+     * @param request  - the checkout request
+     * @param checkout - does the checkout
+     * @return - the checkout of the first request with the key
+     * @throws IdempotencyKeyReusedException - when the key was used for another request
+     * @throws SeatNotAvailableException     - when the first request with the key could not buy the seats
+     */
+    public Result execute(String key, CheckoutRequest request, Supplier<Checkout> checkout) {
+        Entry entry;
+        boolean first = false;
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            removeExpired(now);
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(request, now + ttlNanos);
+                entries.put(key, entry);
+                first = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!entry.request.equals(request)) {
+            throw new IdempotencyKeyReusedException(key);
+        }
+        if (first) {
+            return new Result(run(key, entry, checkout), false);
+        }
+        try {
+            return new Result(entry.outcome.join(), true);
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * @return - number of remembered keys
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Checkout run(String key, Entry entry, Supplier<Checkout> checkout) {
+        try {
+            Checkout result = checkout.get();
+            entry.outcome.complete(result);
+            return result;
+        } catch (SeatNotAvailableException e) {
+            entry.outcome.completeExceptionally(e);
+            throw e;
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                entries.remove(key, entry);
+            } finally {
+                lock.unlock();
+            }
+            entry.outcome.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Every key lives equally long, so the keys expire in the order they were added
+     */
+    private void removeExpired(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.expiresAt - now > 0) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    private static final class Entry {
+        private final CheckoutRequest request;
+        private final long expiresAt;
+        private final CompletableFuture<Checkout> outcome = new CompletableFuture<>();
+
+        private Entry(CheckoutRequest request, long expiresAt) {
+            this.request = request;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -2,25 +2,55 @@ package com.proovitoo.cinemate.service;
 
 import com.proovitoo.cinemate.entity.*;
 import com.proovitoo.cinemate.repository.*;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.time.LocalDateTime;
+import java.time.Instant;
 import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
+@Timed(value = "cinemate.service", histogram = true)
 public class CinemaService {
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_ALTERNATIVES = 10;
+
     private final MovieRepository movieRepository;
     private final ScheduleRepository scheduleRepository;
-    private final UserHistoryRepository userHistoryRepository;
     private final SeatRepository seatRepository;
     private final GenreRepository genreRepository;
+    private final SeatRecommendationCache recommendationCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MovieIndex movieIndex;
+    private final SeatHolds seatHolds;
+    private final UserHistoryWriter userHistoryWriter;
+    private final MovieRecommender movieRecommender;
+    private final MovieSearchIndex movieSearchIndex;
+    private final OccupancyAnalytics occupancyAnalytics;
 
-    public CinemaService(MovieRepository movieRepository, ScheduleRepository scheduleRepository, UserHistoryRepository userHistoryRepository, SeatRepository seatRepository, GenreRepository genreRepository) {
+    public CinemaService(MovieRepository movieRepository, ScheduleRepository scheduleRepository, SeatRepository seatRepository, GenreRepository genreRepository,
+                         SeatRecommendationCache recommendationCache, ApplicationEventPublisher eventPublisher, MovieIndex movieIndex, SeatHolds seatHolds,
+                         UserHistoryWriter userHistoryWriter, MovieRecommender movieRecommender, MovieSearchIndex movieSearchIndex,
+                         OccupancyAnalytics occupancyAnalytics) {
         this.movieRepository = movieRepository;
         this.scheduleRepository = scheduleRepository;
-        this.userHistoryRepository = userHistoryRepository;
         this.seatRepository = seatRepository;
         this.genreRepository = genreRepository;
+        this.recommendationCache = recommendationCache;
+        this.eventPublisher = eventPublisher;
+        this.movieIndex = movieIndex;
+        this.seatHolds = seatHolds;
+        this.userHistoryWriter = userHistoryWriter;
+        this.movieRecommender = movieRecommender;
+        this.movieSearchIndex = movieSearchIndex;
+        this.occupancyAnalytics = occupancyAnalytics;
     }
 
     /**
@@ -33,155 +63,334 @@ public class CinemaService {
     }
     /**
      * Find seats by schedule id and the number of tickets.
-     * Use recommendSeats method to mark seats as recommended
+     * Use recommendSeats method to find the recommended seats
      *
      * @param scheduleId      - id of the seance
      * @param numberOfTickets - number of the tickets being bought
-     * @return - a list of seats for the seance
+     * @param alternatives    - how many alternative blocks are wanted, at most 10
+     * @return - seat map of the seance
      */
-    public List<Seat> getSeatsByScheduleId(Long scheduleId, int numberOfTickets) {
-        recommendSeats(scheduleId, numberOfTickets);
-        return seatRepository.findByScheduleId(scheduleId);
+    public SeatMap getSeatsByScheduleId(Long scheduleId, int numberOfTickets, int alternatives) {
+        return recommendSeats(scheduleId, numberOfTickets, Math.max(0, Math.min(alternatives, MAX_ALTERNATIVES)));
     }
 
     /**
-     * Algorithm that recommends seats to the middle of the hall using Euclidean distance
+     * Algorithm that recommends seats to the middle of the hall using Euclidean distance.
+     * The search runs on the occupancy bitmap (see SeatRecommender) and the result is memoized
+     * until the occupancy of the seance changes, nothing is written to the database
      *
      * @param scheduleId      - id of the seance
      * @param numberOfTickets - number of the tickets being bought
+     * @param alternatives    - how many alternative blocks are wanted besides the recommended one
+     * @return - seat map of the seance with the recommended block
      */
-    public void recommendSeats(Long scheduleId, int numberOfTickets) {
-        setAllRecommendedToFalse(scheduleId);
-        int centerRow = 5;
-        int centerSeat = 5;
-        double minDistance = Double.MAX_VALUE;
-        int minRowDifference = Integer.MAX_VALUE; // For secondary criterion when the distances are the same
-
-        List<Seat> allSeats = seatRepository.findByScheduleId(scheduleId);
-        List<Seat> recommendedSeats = new ArrayList<>();
-
-        // Convert list of seats to a map for faster access
-        Map<Integer, Map<Integer, Seat>> seatMap = new HashMap<>();
-        for (Seat seat : allSeats) {
-            seatMap.computeIfAbsent(seat.getSeatRow(), k -> new HashMap<>())
-                    .put(seat.getSeatNumber(), seat);
-        }
+    public SeatMap recommendSeats(Long scheduleId, int numberOfTickets, int alternatives) {
+        return recommendationCache.getSeatMap(scheduleId, numberOfTickets, alternatives,
+                () -> seatRepository.findByScheduleId(scheduleId));
+    }
 
-        for (Seat startingSeat : allSeats) {
-            int row = startingSeat.getSeatRow();
-            int startingNumber = startingSeat.getSeatNumber();
+    /**
+     * @return - all movies from the repository
+     */
+    public List<Movie> getAllMovies() {
+        return movieRepository.findAll();
+    }
 
-            // Check if a contiguous block of seats fits within the row
-            if (startingNumber + numberOfTickets - 1 > 9) {
-                continue;
-            }
+    /**
+     * Filtering movies with the in-memory index
+     *
+     * @param filter - selected genres, age restrictions, countries and release years
+     * @return - list of filtered movies
+     */
+    public List<Movie> getFilteredMovies(MovieFilter filter) {
+        return movieIndex.find(filter);
+    }
 
-            boolean oneIsOccupied = false;
-            List<Seat> tempSeats = new ArrayList<>();
+    /**
+     * Page of the catalog using keyset pagination, no offset is scanned
+     *
+     * @param afterId   - id of the last movie of the previous page, null for the first page
+     * @param afterYear - release year of the last movie of the previous page, used when sorted by year
+     * @param byYear    - sort the newest movies first instead of by id, within a year the newest id first
+     * @param size      - page size
+     * @return - page of movie summaries
+     */
+    public MoviePage getMoviePage(Long afterId, Integer afterYear, boolean byYear, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<MovieSummary> movies = byYear
+                ? movieRepository.findSummariesAfterYear(afterYear == null ? Integer.MAX_VALUE : afterYear,
+                afterId == null ? Long.MAX_VALUE : afterId, PageRequest.ofSize(pageSize))
+                : movieRepository.findSummariesAfterId(afterId == null ? 0 : afterId, PageRequest.ofSize(pageSize));
+        return toPage(movies, pageSize, byYear);
+    }
 
-            for (int i = 0; i < numberOfTickets; i++) {
-                Seat seat = seatMap.get(row).get(startingNumber + i);
-                if (seat == null || seat.isOccupied()) {
-                    oneIsOccupied = true;
-                    break;
-                }
-                tempSeats.add(seat);
-            }
+    /**
+     * Page of the filtered movies ordered by id
+     *
+     * @param filter  - selected genres, age restrictions, countries and release years
+     * @param afterId - id of the last movie of the previous page, null for the first page
+     * @param size    - page size
+     * @return - page of movie summaries
+     */
+    public MoviePage getFilteredMoviePage(MovieFilter filter, Long afterId, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<MovieSummary> movies = movieIndex.find(filter, afterId == null ? 0 : afterId, pageSize).stream()
+                .map(MovieSummary::of)
+                .toList();
+        return toPage(movies, pageSize, false);
+    }
 
-            if (!oneIsOccupied) {
-                // Calculate the middle seat's position
-                int seatsFromStartingSeat = (numberOfTickets - 1) / 2;
-                Seat centeredSeat = tempSeats.get(seatsFromStartingSeat);
+    private MoviePage toPage(List<MovieSummary> movies, int pageSize, boolean byYear) {
+        if (movies.size() < pageSize) {
+            return new MoviePage(movies, null, null);
+        }
+        MovieSummary last = movies.get(movies.size() - 1);
+        return new MoviePage(movies, last.id(), byYear ? last.releaseYear() : null);
+    }
 
-                // Calculate the distance from the center
-                double newDistance = calculateDistance(centeredSeat, centerRow, centerSeat);
-                int rowDifference = Math.abs(row - centerRow);
+    /**
+     * Searches the title, cast, director, writer and plot of the movies, see MovieSearchIndex
+     *
+     * @param query - words to search for, the last one may be incomplete
+     * @param size  - how many movies are wanted, at most 100
+     * @return - summaries of the matching movies, the most relevant first
+     */
+    public List<MovieSummary> searchMovies(String query, int size) {
+        return movieSearchIndex.search(query, Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+    }
 
-                // Update recommended seats based on primary and secondary criteria
-                if (newDistance < minDistance || (newDistance == minDistance && rowDifference < minRowDifference)) {
-                    minDistance = newDistance;
-                    minRowDifference = rowDifference;
-                    recommendedSeats = new ArrayList<>(tempSeats);
-                }
-            }
-        }
+    /**
+     * Loads the catalog into the movie and search indexes once the application has started,
+     * afterwards the indexes are kept up to date with MovieSavedEvent
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void indexMovies() {
+        List<Movie> movies = movieRepository.findAll();
+        movieIndex.rebuild(movies);
+        movieSearchIndex.rebuild(movies);
+    }
 
-        for (Seat seat : recommendedSeats) {
-            seat.setRecommended(true);
-        }
+    /**
+     * Saves user history in the background, see UserHistoryWriter
+     *
+     * @param userHistory - the collected data which is being saved
+     * @return - false if the history can not be taken right now
+     */
+    public boolean save(UserHistory userHistory) {
+        return userHistoryWriter.offer(userHistory);
+    }
 
-        seatRepository.saveAll(recommendedSeats);
+    /**
+     * Movies that were watched by the same users, see MovieRecommender
+     *
+     * @param movieId - id of the movie
+     * @param size    - how many movies are wanted, at most 100
+     * @return - summaries of the most similar movies first
+     */
+    public List<MovieSummary> getRelatedMovies(Long movieId, int size) {
+        return summaries(movieRecommender.related(movieId, Math.max(1, Math.min(size, MAX_PAGE_SIZE))));
     }
 
     /**
-     * Calculates distance from the center by using Euclidean distance
+     * Recommendations from the recent history of the user, the most watched movies for unknown users
      *
-     * @param seat       - the seat that we are calculating distance for
-     * @param centerRow  - number of the row of centered seat
-     * @param centerSeat - number of the centered seat
-     * @return - the distance between two
+     * @param userId - anonymous id of the user
+     * @param size   - how many movies are wanted, at most 100
+     * @return - summaries of the recommended movies, the best first
      */
-    private double calculateDistance(Seat seat, int centerRow, int centerSeat) {
-        int rowDifference = seat.getSeatRow() - centerRow;
-        int seatDifference = seat.getSeatNumber() - centerSeat;
-        return Math.sqrt(rowDifference * rowDifference + seatDifference * seatDifference); // Euclidean distance
+    public List<MovieSummary> getRecommendedMovies(String userId, int size) {
+        return summaries(movieRecommender.recommend(userId, Math.max(1, Math.min(size, MAX_PAGE_SIZE))));
     }
 
+    private List<MovieSummary> summaries(List<Long> movieIds) {
+        return movieIds.stream()
+                .map(movieIndex::get)
+                .filter(Objects::nonNull)
+                .map(MovieSummary::of)
+                .toList();
+    }
 
     /**
-     * Sets all the recommended seats back to false.
-     * Used every time before new seat selection process
+     * Holds free seats of a seance until they are bought or the hold expires
      *
      * @param scheduleId - id of the seance
+     * @param seatIds    - seats that are chosen by the user
+     * @return - the hold
+     * @throws InvalidRequestException   - when the seance or the seats are missing or a seat id is null
+     * @throws SeatNotAvailableException - when some of the seats are occupied, held or not in the seance
      */
-    private void setAllRecommendedToFalse(Long scheduleId) {
-        List<Seat> seats = seatRepository.findByScheduleId(scheduleId);
-        for (Seat seat : seats) {
-            seat.setRecommended(false);
+    public SeatHold holdSeats(Long scheduleId, List<Long> seatIds) {
+        if (scheduleId == null || seatIds == null || seatIds.isEmpty()) {
+            throw new InvalidRequestException("A hold needs a seance and seats");
+        }
+        if (seatIds.stream().anyMatch(Objects::isNull)) {
+            throw new InvalidRequestException("Seat ids can not be null");
+        }
+        Set<Long> uniqueIds = new LinkedHashSet<>(seatIds);
+        Set<Long> unavailable = new LinkedHashSet<>(uniqueIds);
+        for (SeatRepository.SeatState state : seatRepository.findSeatStates(uniqueIds)) {
+            if (!state.getOccupied() && Objects.equals(state.getScheduleId(), scheduleId)) {
+                unavailable.remove(state.getId());
+            }
+        }
+        if (!unavailable.isEmpty()) {
+            throw new SeatNotAvailableException(unavailable);
         }
+        SeatHold hold = seatHolds.hold(scheduleId, uniqueIds);
+        // A purchase may have been committed since the states were read, its seats are not reserved anymore
+        List<Long> sold = seatRepository.findSeatStates(uniqueIds).stream()
+                .filter(SeatRepository.SeatState::getOccupied)
+                .map(SeatRepository.SeatState::getId)
+                .toList();
+        if (!sold.isEmpty()) {
+            seatHolds.release(hold.holdId());
+            throw new SeatNotAvailableException(sold);
+        }
+        return hold;
     }
 
     /**
-     * @return - all movies from the repository
+     * Releases held seats before the hold expires
+     *
+     * @param holdId - id of the hold
+     * @return - false if the hold does not exist or has already expired
      */
-    public List<Movie> getAllMovies() {
-        return movieRepository.findAll();
+    public boolean releaseHold(UUID holdId) {
+        return seatHolds.release(holdId);
     }
 
     /**
-     * Filtering movies
+     * Occupies the seats after the tickets are bought.
+     * All the seats are updated with one conditional statement, if any of them is already
+     * occupied, held by someone else or does not exist the whole purchase is rolled back.
+     * The seats can not be held while they are being bought, the bought seats leave their hold once the purchase is committed
      *
-     * @param genre - genre which is selected
-     * @param age   - age restriction which is selected
-     * @return - list of filtered moviesˇ
+     * @param seatIds - a list of seats that are being updated
+     * @param holdId  - hold of the seats, null if they were not held
+     * @throws InvalidRequestException   - when a seat id is null
+     * @throws SeatNotAvailableException - when some of the seats can not be bought
      */
-
-    public List<Movie> getFilteredMovies(String genre, String age) {
-        return movieRepository.findMoviesByFilters(genre, age);
+    @Transactional
+    public void updateSeatOccupancy(List<Long> seatIds, UUID holdId) {
+        if (seatIds.stream().anyMatch(Objects::isNull)) {
+            throw new InvalidRequestException("Seat ids can not be null");
+        }
+        Set<Long> uniqueIds = new LinkedHashSet<>(seatIds);
+        if (uniqueIds.isEmpty()) {
+            return;
+        }
+        Map<Long, UUID> buyerHolds = new HashMap<>();
+        uniqueIds.forEach(seatId -> buyerHolds.put(seatId, holdId));
+        startPurchase(buyerHolds);
+        occupy(uniqueIds, seatRepository.findSeatStates(uniqueIds));
     }
 
     /**
-     * Saves user history
+     * Buys the seats of several seances at once, if any of them can not be bought nothing is bought.
+     * Holds are checked per seance and all the seats are occupied with one statement
      *
-     * @param userHistory - the collected data which is being saved
-     * @return - using repository we save the history
+     * @param request - seats of every seance with their holds
+     * @return - the checkout
+     * @throws InvalidRequestException   - when an item has no seance or seats, a seat id is null or a seat is in several items
+     * @throws SeatNotAvailableException - when some of the seats are taken, held by someone else or not in their seance
      */
-    public UserHistory save(UserHistory userHistory) {
-        return userHistoryRepository.save(userHistory);
+    @Transactional
+    public Checkout checkout(CheckoutRequest request) {
+        if (request.items() == null || request.items().isEmpty()) {
+            throw new InvalidRequestException("No seats to check out");
+        }
+        Set<Long> uniqueIds = new LinkedHashSet<>();
+        Map<Long, Long> seatSchedules = new HashMap<>();
+        Map<Long, UUID> buyerHolds = new HashMap<>();
+        for (CheckoutItem item : request.items()) {
+            if (item.scheduleId() == null || item.seatIds() == null || item.seatIds().isEmpty()) {
+                throw new InvalidRequestException("Every item needs a seance and seats");
+            }
+            for (Long seatId : item.seatIds()) {
+                if (seatId == null) {
+                    throw new InvalidRequestException("Seat ids can not be null");
+                }
+                if (!uniqueIds.add(seatId)) {
+                    throw new InvalidRequestException("Seat " + seatId + " is checked out twice");
+                }
+                seatSchedules.put(seatId, item.scheduleId());
+                buyerHolds.put(seatId, item.holdId());
+            }
+        }
+        startPurchase(buyerHolds);
+        List<SeatRepository.SeatState> states = seatRepository.findSeatStates(uniqueIds);
+        Set<Long> unavailable = new LinkedHashSet<>(uniqueIds);
+        for (SeatRepository.SeatState state : states) {
+            if (Objects.equals(state.getScheduleId(), seatSchedules.get(state.getId()))) {
+                unavailable.remove(state.getId());
+            }
+        }
+        if (!unavailable.isEmpty()) {
+            throw new SeatNotAvailableException(unavailable);
+        }
+        occupy(uniqueIds, states);
+        return new Checkout(UUID.randomUUID(), request.items(), Instant.now());
     }
 
     /**
-     * We set the seat occupation to true through seat repository
+     * Reserves the seats in SeatHolds until the transaction of the purchase is committed or rolled back
      *
-     * @param seatIds - a list of seats that are being updated
+     * @param buyerHolds - ids of the seats being bought with the hold of the buyer, null if the buyer has none
+     * @throws SeatNotAvailableException - when some of the seats are held by someone else or being bought
      */
-    public void updateSeatOccupancy(List<Long> seatIds) {
-        seatRepository.findAllById(seatIds).forEach(seat -> {
-            seat.setOccupied(true);
-            seatRepository.save(seat);
+    private void startPurchase(Map<Long, UUID> buyerHolds) {
+        seatHolds.startPurchase(buyerHolds);
+        Set<Long> seatIds = Set.copyOf(buyerHolds.keySet());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                seatHolds.endPurchase(seatIds);
+            }
         });
     }
 
+    /**
+     * Occupies all the seats with one conditional statement and publishes the purchase per seance
+     *
+     * @param seatIds - seats that are being bought
+     * @param states  - states of the seats read before the update
+     * @throws SeatNotAvailableException - when some of the seats are already occupied or do not exist
+     */
+    private void occupy(Set<Long> seatIds, List<SeatRepository.SeatState> states) {
+        occupancyAnalytics.track(states.stream().map(SeatRepository.SeatState::getScheduleId).collect(Collectors.toSet()));
+        int occupied = seatRepository.occupyFreeSeats(seatIds);
+        if (occupied != seatIds.size()) {
+            throw new SeatNotAvailableException(unavailableSeats(seatIds, states));
+        }
+
+        Map<Long, List<Long>> seatsBySchedule = new HashMap<>();
+        for (SeatRepository.SeatState state : states) {
+            // Nobody follows a seat that is not in a seance
+            if (state.getScheduleId() != null) {
+                seatsBySchedule.computeIfAbsent(state.getScheduleId(), k -> new ArrayList<>()).add(state.getId());
+            }
+        }
+        seatsBySchedule.forEach((scheduleId, ids) -> eventPublisher.publishEvent(new SeatsOccupiedEvent(scheduleId, ids)));
+    }
+
+    /**
+     * Finds the seats which made the purchase fail.
+     * If they were taken by a concurrent purchase after reading the states, all the seats are reported
+     *
+     * @param seatIds - seats that were being bought
+     * @param states  - states of the seats read before the update
+     * @return - ids of the unavailable seats
+     */
+    private List<Long> unavailableSeats(Set<Long> seatIds, List<SeatRepository.SeatState> states) {
+        Set<Long> unavailable = new LinkedHashSet<>(seatIds);
+        for (SeatRepository.SeatState state : states) {
+            if (!state.getOccupied()) {
+                unavailable.remove(state.getId());
+            }
+        }
+        return unavailable.isEmpty() ? new ArrayList<>(seatIds) : new ArrayList<>(unavailable);
+    }
+
     /**
      * Finds a schedule for a movie
      *
@@ -205,11 +414,6 @@ public class CinemaService {
      * @return - list of age restrictions
      */
     public List<String> findAllAgeRestriction(){
-        List<String> restrictions = new ArrayList<>();
-        for (Movie movie : movieRepository.findAll()) {
-            String ageRestriction = movie.getAgeRestriction();
-            if(!restrictions.contains(ageRestriction)) restrictions.add(ageRestriction);
-        }
-        return restrictions;
+        return movieRepository.findDistinctAgeRestrictions();
     }
 }
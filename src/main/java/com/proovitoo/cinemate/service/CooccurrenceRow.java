@@ -0,0 +1,173 @@
+package com.proovitoo.cinemate.service;
+
+import java.util.Arrays;
+
+/**
+ * Sparse counts of the movies that were watched together with one movie.
+ * Open addressing over two int arrays keyed by movie ordinal, so a count costs 8 bytes instead of two boxed objects
+ * and a map entry. The row keeps at most maxSize movies, MovieRecommender makes room in a full row with pruneSingles
+ * and removes the dropped pairs from the other rows as well, so every pair is counted in both of its rows or in neither.
+ */
+final class CooccurrenceRow {
+    private static final int EMPTY = -1;
+
+    private final int maxSize;
+    private int[] keys;
+    private int[] counts;
+    private int size;
+
+    CooccurrenceRow(int maxSize) {
+        this.maxSize = maxSize;
+        this.keys = newKeys(8);
+        this.counts = new int[8];
+    }
+
+    /**
+     * @param ordinal - ordinal of the other movie
+     * @return - false if the row is full and the movie was not counted
+     */
+    boolean increment(int ordinal) {
+        int slot = slot(keys, ordinal);
+        if (keys[slot] == ordinal) {
+            counts[slot]++;
+            return true;
+        }
+        if (size == maxSize) {
+            return false;
+        }
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize(keys.length * 2);
+            slot = slot(keys, ordinal);
+        }
+        keys[slot] = ordinal;
+        counts[slot] = 1;
+        size++;
+        return true;
+    }
+
+    /**
+     * @param ordinal - ordinal of the other movie
+     * @return - true if the movie is counted already or the row is not full
+     */
+    boolean hasRoomFor(int ordinal) {
+        return size < maxSize || keys[slot(keys, ordinal)] == ordinal;
+    }
+
+    /**
+     * Drops the movies seen together only once
+     *
+     * @return - ordinals of the dropped movies, empty if every movie was seen together more than once
+     */
+    int[] pruneSingles() {
+        int[] dropped = new int[size];
+        int droppedCount = 0;
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = newKeys(oldKeys.length);
+        counts = new int[oldKeys.length];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) {
+                continue;
+            }
+            if (oldCounts[i] > 1) {
+                put(oldKeys[i], oldCounts[i]);
+            } else {
+                dropped[droppedCount++] = oldKeys[i];
+            }
+        }
+        return Arrays.copyOf(dropped, droppedCount);
+    }
+
+    /**
+     * Forgets the movie, the entries after it are shifted back so the row needs no tombstones
+     *
+     * @param ordinal - ordinal of the other movie
+     */
+    void remove(int ordinal) {
+        int hole = slot(keys, ordinal);
+        if (keys[hole] != ordinal) {
+            return;
+        }
+        int mask = keys.length - 1;
+        for (int slot = (hole + 1) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            // An entry may fill the hole only if the hole is on its probe path from its home slot
+            if (((slot - home(keys[slot], mask)) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = keys[slot];
+                counts[hole] = counts[slot];
+                hole = slot;
+            }
+        }
+        keys[hole] = EMPTY;
+        counts[hole] = 0;
+        size--;
+    }
+
+    /**
+     * @param ordinal - ordinal of the other movie
+     * @return - how many times the movies were watched together
+     */
+    int get(int ordinal) {
+        int slot = slot(keys, ordinal);
+        return keys[slot] == ordinal ? counts[slot] : 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                visitor.accept(keys[i], counts[i]);
+            }
+        }
+    }
+
+    interface Visitor {
+        void accept(int ordinal, int count);
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = newKeys(capacity);
+        counts = new int[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldCounts[i]);
+            }
+        }
+    }
+
+    private void put(int ordinal, int count) {
+        int slot = slot(keys, ordinal);
+        keys[slot] = ordinal;
+        counts[slot] = count;
+        size++;
+    }
+
+    /**
+     * @return - slot of the ordinal or the empty slot where it belongs, the table always has an empty slot
+     */
+    private static int slot(int[] keys, int ordinal) {
+        int mask = keys.length - 1;
+        int slot = home(ordinal, mask);
+        while (keys[slot] != EMPTY && keys[slot] != ordinal) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int home(int ordinal, int mask) {
+        int hash = ordinal * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & mask;
+    }
+
+    private static int[] newKeys(int capacity) {
+        int[] keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+}
@@ -0,0 +1,152 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Hall;
+
+import java.util.Arrays;
+
+/**
+ * Immutable layout of a hall with its seat score table.
+ * The score of every position is computed once: the squared Euclidean distance from the center
+ * seat, with the row difference as the secondary criterion. Lower scores are better, so comparing
+ * two blocks is one array lookup for each of their middle seats.
+ */
+public final class HallLayout {
+    public static final char SEAT = 'S';
+    public static final char AISLE = '_';
+    public static final char MISSING = '.';
+
+    private final int rows;
+    private final int seatsPerRow;
+    private final int centerRow;
+    private final int centerSeat;
+    private final char[] positions;
+    private final long[] scores;
+
+    private HallLayout(int rows, int seatsPerRow, char[] positions, Integer centerRow, Integer centerSeat) {
+        this.rows = rows;
+        this.seatsPerRow = seatsPerRow;
+        this.positions = positions;
+        this.centerRow = centerRow != null ? centerRow : (rows + 1) / 2;
+        this.centerSeat = centerSeat != null ? centerSeat : (seatsPerRow + 1) / 2;
+        this.scores = new long[rows * seatsPerRow];
+        for (int row = 1; row <= rows; row++) {
+            int rowDifference = Math.abs(row - this.centerRow);
+            for (int seatNumber = 1; seatNumber <= seatsPerRow; seatNumber++) {
+                int seatDifference = seatNumber - this.centerSeat;
+                long distance = (long) rowDifference * rowDifference + (long) seatDifference * seatDifference;
+                scores[position(row, seatNumber)] = distance * (rows + 1L) + rowDifference;
+            }
+        }
+    }
+
+    /**
+     * @param rows        - number of rows
+     * @param seatsPerRow - number of seats in every row
+     * @return - layout where every position is a seat
+     */
+    public static HallLayout rectangle(int rows, int seatsPerRow) {
+        char[] positions = new char[rows * seatsPerRow];
+        Arrays.fill(positions, SEAT);
+        return new HallLayout(rows, seatsPerRow, positions, null, null);
+    }
+
+    /**
+     * @param hall - hall entity
+     * @return - layout parsed from the layout string of the hall
+     */
+    public static HallLayout of(Hall hall) {
+        return parse(hall.getLayout(), hall.getCenterRow(), hall.getCenterSeat());
+    }
+
+    /**
+     * Parses a layout like "SSS_SSS/SSS_SSS/.SS_SS.", shorter rows are padded with missing seats
+     *
+     * @param layout     - rows separated by '/'
+     * @param centerRow  - row the recommendations aim at, null for the middle row
+     * @param centerSeat - seat the recommendations aim at, null for the middle seat
+     * @return - parsed layout
+     */
+    public static HallLayout parse(String layout, Integer centerRow, Integer centerSeat) {
+        String[] rowPatterns = layout == null || layout.isBlank() ? new String[0] : layout.trim().split("/");
+        int seatsPerRow = 0;
+        for (String rowPattern : rowPatterns) {
+            seatsPerRow = Math.max(seatsPerRow, rowPattern.trim().length());
+        }
+        char[] positions = new char[rowPatterns.length * seatsPerRow];
+        Arrays.fill(positions, MISSING);
+        for (int i = 0; i < rowPatterns.length; i++) {
+            String rowPattern = rowPatterns[i].trim();
+            for (int j = 0; j < rowPattern.length(); j++) {
+                char position = rowPattern.charAt(j);
+                if (position != SEAT && position != AISLE && position != MISSING) {
+                    throw new IllegalArgumentException("Unknown position '" + position + "' in hall layout");
+                }
+                positions[i * seatsPerRow + j] = position;
+            }
+        }
+        return new HallLayout(rowPatterns.length, seatsPerRow, positions, centerRow, centerSeat);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
+
+    public int getCenterRow() {
+        return centerRow;
+    }
+
+    public int getCenterSeat() {
+        return centerSeat;
+    }
+
+    public boolean isSeat(int row, int seatNumber) {
+        return row >= 1 && row <= rows && seatNumber >= 1 && seatNumber <= seatsPerRow
+                && positions[position(row, seatNumber)] == SEAT;
+    }
+
+    /**
+     * @return - score of the seat, lower is closer to the center
+     */
+    public long score(int row, int seatNumber) {
+        return scores[position(row, seatNumber)];
+    }
+
+    /**
+     * @return - lowest score a position of the row has, a lower bound for every block in the row
+     */
+    public long bestScoreInRow(int row) {
+        int seatNumber = Math.max(1, Math.min(seatsPerRow, centerSeat));
+        return scores[position(row, seatNumber)];
+    }
+
+    /**
+     * @return - layout string in the format of Hall.layout
+     */
+    public String pattern() {
+        StringBuilder pattern = new StringBuilder(rows * (seatsPerRow + 1));
+        for (int row = 1; row <= rows; row++) {
+            if (row > 1) {
+                pattern.append('/');
+            }
+            for (int seatNumber = 1; seatNumber <= seatsPerRow; seatNumber++) {
+                pattern.append(positions[position(row, seatNumber)]);
+            }
+        }
+        return pattern.toString();
+    }
+
+    /**
+     * @return - template with a seat for every seat position of the layout
+     */
+    public HallTemplate toTemplate() {
+        return HallTemplate.of(this);
+    }
+
+    private int position(int row, int seatNumber) {
+        return (row - 1) * seatsPerRow + seatNumber - 1;
+    }
+}
@@ -0,0 +1,45 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Hall;
+import com.proovitoo.cinemate.entity.Seat;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parsed layouts and score tables of the halls, every hall is parsed once
+ */
+@Component
+public class HallLayouts {
+    private final Map<Long, HallLayout> layouts = new ConcurrentHashMap<>();
+
+    /**
+     * @param hall - hall entity
+     * @return - layout of the hall
+     */
+    public HallLayout get(Hall hall) {
+        return layouts.computeIfAbsent(hall.getId(), id -> HallLayout.of(hall));
+    }
+
+    /**
+     * Finds the layout of the hall the seats are in.
+     * Seances without a hall get a rectangular layout as big as their furthest seat
+     *
+     * @param seats - seats of one seance
+     * @return - layout of the hall
+     */
+    public HallLayout forSeats(List<Seat> seats) {
+        int rows = 0;
+        int seatsPerRow = 0;
+        for (Seat seat : seats) {
+            if (seat.getSchedule() != null && seat.getSchedule().getHall() != null) {
+                return get(seat.getSchedule().getHall());
+            }
+            rows = Math.max(rows, seat.getSeatRow());
+            seatsPerRow = Math.max(seatsPerRow, seat.getSeatNumber());
+        }
+        return HallLayout.rectangle(rows, seatsPerRow);
+    }
+}
@@ -0,0 +1,74 @@
+package com.proovitoo.cinemate.service;
+
+/**
+ * Seat positions of a hall which are stamped out for every seance.
+ * Positions are kept in row-major order in two parallel arrays.
+ */
+public final class HallTemplate {
+    private final int[] seatRows;
+    private final int[] seatNumbers;
+
+    private HallTemplate(int[] seatRows, int[] seatNumbers) {
+        this.seatRows = seatRows;
+        this.seatNumbers = seatNumbers;
+    }
+
+    /**
+     * @param rows        - number of rows
+     * @param seatsPerRow - number of seats in every row
+     * @return - template of a rectangular hall
+     */
+    public static HallTemplate rectangle(int rows, int seatsPerRow) {
+        int[] seatRows = new int[rows * seatsPerRow];
+        int[] seatNumbers = new int[rows * seatsPerRow];
+        int position = 0;
+        for (int i = 1; i <= rows; i++) {
+            for (int j = 1; j <= seatsPerRow; j++) {
+                seatRows[position] = i;
+                seatNumbers[position] = j;
+                position++;
+            }
+        }
+        return new HallTemplate(seatRows, seatNumbers);
+    }
+
+    /**
+     * @param layout - layout of the hall
+     * @return - template with the seats of the layout, aisles and missing seats are left out
+     */
+    public static HallTemplate of(HallLayout layout) {
+        int size = 0;
+        for (int i = 1; i <= layout.getRows(); i++) {
+            for (int j = 1; j <= layout.getSeatsPerRow(); j++) {
+                if (layout.isSeat(i, j)) {
+                    size++;
+                }
+            }
+        }
+        int[] seatRows = new int[size];
+        int[] seatNumbers = new int[size];
+        int position = 0;
+        for (int i = 1; i <= layout.getRows(); i++) {
+            for (int j = 1; j <= layout.getSeatsPerRow(); j++) {
+                if (layout.isSeat(i, j)) {
+                    seatRows[position] = i;
+                    seatNumbers[position] = j;
+                    position++;
+                }
+            }
+        }
+        return new HallTemplate(seatRows, seatNumbers);
+    }
+
+    public int size() {
+        return seatRows.length;
+    }
+
+    public int seatRow(int position) {
+        return seatRows[position];
+    }
+
+    public int seatNumber(int position) {
+        return seatNumbers[position];
+    }
+}
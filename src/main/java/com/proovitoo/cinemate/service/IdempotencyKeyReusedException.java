@@ -0,0 +1,11 @@
+package com.proovitoo.cinemate.service;
+
+/**
+ * Thrown when an idempotency key is sent again with a different request
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String key) {
+        super("Idempotency key " + key + " was already used for another request");
+    }
+}
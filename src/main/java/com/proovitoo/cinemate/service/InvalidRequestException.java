@@ -0,0 +1,11 @@
+package com.proovitoo.cinemate.service;
+
+/**
+ * Thrown when a request from the client is incomplete or contradicts itself
+ */
+public class InvalidRequestException extends RuntimeException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
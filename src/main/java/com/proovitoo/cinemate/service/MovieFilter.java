@@ -0,0 +1,22 @@
+package com.proovitoo.cinemate.service;
+
+import java.util.Set;
+
+/**
+ * Movie filter, values of one field are combined with OR and the fields with AND
+ * @param genres - genres, empty for any genre
+ * @param allGenres - whether a movie must have all the genres instead of any of them
+ * @param ageRestrictions - age restrictions, empty for any
+ * @param countries - countries, empty for any
+ * @param fromYear - first release year (inclusive), null for no limit
+ * @param toYear - last release year (inclusive), null for no limit
+ */
+public record MovieFilter(Set<String> genres, boolean allGenres, Set<String> ageRestrictions,
+                          Set<String> countries, Integer fromYear, Integer toYear) {
+
+    public MovieFilter {
+        genres = genres == null ? Set.of() : Set.copyOf(genres);
+        ageRestrictions = ageRestrictions == null ? Set.of() : Set.copyOf(ageRestrictions);
+        countries = countries == null ? Set.of() : Set.copyOf(countries);
+    }
+}
@@ -0,0 +1,276 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Movie;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index of the catalog used for filtering.
+ * Every movie gets a dense ordinal and every genre, age restriction, release year and
+ * country maps to a bitset of the ordinals, so filters are answered with bitset operations.
+ * Ordinals follow the ids of the movies, so a keyset page is read straight from the bitset.
+ */
+@Component
+public class MovieIndex {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final List<Movie> movies = new ArrayList<>();
+    private final BitSet present = new BitSet();
+    private final Map<String, BitSet> genres = new HashMap<>();
+    private final Map<String, BitSet> ageRestrictions = new HashMap<>();
+    private final Map<String, BitSet> countries = new HashMap<>();
+    private final NavigableMap<Integer, BitSet> releaseYears = new TreeMap<>();
+
+    /**
+     * Replaces the whole index
+     * @param catalog - all the movies
+     */
+    public void rebuild(Collection<Movie> catalog) {
+        lock.writeLock().lock();
+        try {
+            ordinals.clear();
+            movies.clear();
+            present.clear();
+            genres.clear();
+            ageRestrictions.clear();
+            countries.clear();
+            releaseYears.clear();
+            catalog.stream().sorted(Comparator.comparing(Movie::getId)).forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the movie or replaces its previous version
+     * @param movie - saved movie
+     */
+    public void index(Movie movie) {
+        lock.writeLock().lock();
+        try {
+            if (!ordinals.containsKey(movie.getId()) && !movies.isEmpty()
+                    && movie.getId() < movies.get(movies.size() - 1).getId()) {
+                // Rare: the new id is not the biggest, the ordinals are given again to keep them in id order
+                List<Movie> catalog = new ArrayList<>(movies);
+                catalog.add(movie);
+                rebuild(catalog);
+            } else {
+                add(movie);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onMovieSaved(MovieSavedEvent event) {
+        index(event.movie());
+    }
+
+    /**
+     * @param filter - filter to apply
+     * @return - matching movies ordered by id
+     */
+    public List<Movie> find(MovieFilter filter) {
+        lock.readLock().lock();
+        try {
+            BitSet result = match(filter);
+            List<Movie> found = new ArrayList<>(result.cardinality());
+            for (int ordinal = result.nextSetBit(0); ordinal >= 0; ordinal = result.nextSetBit(ordinal + 1)) {
+                found.add(movies.get(ordinal));
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Keyset page of the matching movies ordered by id
+     * @param filter  - filter to apply
+     * @param afterId - id of the last movie of the previous page, 0 for the first page
+     * @param limit   - page size
+     * @return - at most limit matching movies with a bigger id
+     */
+    public List<Movie> find(MovieFilter filter, long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            BitSet result = match(filter);
+            List<Movie> found = new ArrayList<>(Math.min(limit, movies.size()));
+            for (int ordinal = result.nextSetBit(firstOrdinalAfter(afterId)); ordinal >= 0 && found.size() < limit;
+                 ordinal = result.nextSetBit(ordinal + 1)) {
+                found.add(movies.get(ordinal));
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id - id of the movie
+     * @return - indexed movie, null if there is no such movie
+     */
+    public Movie get(Long id) {
+        lock.readLock().lock();
+        try {
+            Integer ordinal = ordinals.get(id);
+            return ordinal == null ? null : movies.get(ordinal);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Binary search over the ordinals, which are in id order
+     */
+    private int firstOrdinalAfter(long afterId) {
+        int low = 0;
+        int high = movies.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (movies.get(middle).getId() <= afterId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private BitSet match(MovieFilter filter) {
+        BitSet result = (BitSet) present.clone();
+        if (!filter.genres().isEmpty()) {
+            result.and(filter.allGenres() ? all(genres, filter.genres()) : any(genres, filter.genres()));
+        }
+        if (!filter.ageRestrictions().isEmpty()) {
+            result.and(any(ageRestrictions, filter.ageRestrictions()));
+        }
+        if (!filter.countries().isEmpty()) {
+            result.and(any(countries, filter.countries()));
+        }
+        if (filter.fromYear() != null || filter.toYear() != null) {
+            result.and(years(filter.fromYear(), filter.toYear()));
+        }
+        return result;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return present.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Movie movie) {
+        Integer ordinal = ordinals.get(movie.getId());
+        if (ordinal == null) {
+            ordinal = movies.size();
+            ordinals.put(movie.getId(), ordinal);
+            movies.add(movie);
+        } else {
+            remove(movies.get(ordinal), ordinal);
+            movies.set(ordinal, movie);
+        }
+        present.set(ordinal);
+        for (String genre : split(movie.getGenreNames())) {
+            genres.computeIfAbsent(genre, k -> new BitSet()).set(ordinal);
+        }
+        if (movie.getAgeRestriction() != null) {
+            ageRestrictions.computeIfAbsent(normalize(movie.getAgeRestriction()), k -> new BitSet()).set(ordinal);
+        }
+        for (String country : split(movie.getCountry())) {
+            countries.computeIfAbsent(country, k -> new BitSet()).set(ordinal);
+        }
+        releaseYears.computeIfAbsent(movie.getReleaseYear(), k -> new BitSet()).set(ordinal);
+    }
+
+    private void remove(Movie movie, int ordinal) {
+        for (String genre : split(movie.getGenreNames())) {
+            clear(genres, genre, ordinal);
+        }
+        if (movie.getAgeRestriction() != null) {
+            clear(ageRestrictions, normalize(movie.getAgeRestriction()), ordinal);
+        }
+        for (String country : split(movie.getCountry())) {
+            clear(countries, country, ordinal);
+        }
+        clear(releaseYears, movie.getReleaseYear(), ordinal);
+    }
+
+    private static <K> void clear(Map<K, BitSet> postings, K key, int ordinal) {
+        BitSet bits = postings.get(key);
+        if (bits != null) {
+            bits.clear(ordinal);
+            if (bits.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    private static BitSet any(Map<String, BitSet> postings, Set<String> values) {
+        BitSet result = new BitSet();
+        for (String value : values) {
+            BitSet bits = postings.get(normalize(value));
+            if (bits != null) {
+                result.or(bits);
+            }
+        }
+        return result;
+    }
+
+    private static BitSet all(Map<String, BitSet> postings, Set<String> values) {
+        BitSet result = null;
+        for (String value : values) {
+            BitSet bits = postings.get(normalize(value));
+            if (bits == null) {
+                return new BitSet();
+            }
+            if (result == null) {
+                result = (BitSet) bits.clone();
+            } else {
+                result.and(bits);
+            }
+        }
+        return result == null ? new BitSet() : result;
+    }
+
+    private BitSet years(Integer fromYear, Integer toYear) {
+        BitSet result = new BitSet();
+        int from = fromYear == null ? Integer.MIN_VALUE : fromYear;
+        int to = toYear == null ? Integer.MAX_VALUE : toYear;
+        if (from > to) {
+            return result;
+        }
+        for (BitSet bits : releaseYears.subMap(from, true, to, true).values()) {
+            result.or(bits);
+        }
+        return result;
+    }
+
+    /**
+     * Splits comma separated values such as "Action, Drama"
+     */
+    private static List<String> split(String values) {
+        if (values == null || values.isBlank()) {
+            return List.of();
+        }
+        List<String> result = new ArrayList<>();
+        for (String value : values.split(",")) {
+            if (!value.isBlank()) {
+                result.add(normalize(value));
+            }
+        }
+        return result;
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,308 @@
+package com.proovitoo.cinemate.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * "Because you watched" recommendations from the user history.
+ * Every movie gets a dense ordinal and a sparse CooccurrenceRow with how many users watched it together with
+ * each other movie. A history entry is counted against the recent movies of its user, so the counts are updated
+ * incrementally and requests only read them. Memory is bounded by the number of users that are remembered
+ * (the least recently active are forgotten), the movies remembered per user and the movies kept per row.
+ * Similarity of two movies is the cosine of the sets of users who watched them, damped for movies that were
+ * watched together only a few times so that rarely watched movies do not win on one shared user.
+ */
+@Component
+public class MovieRecommender {
+    private static final Logger log = LoggerFactory.getLogger(MovieRecommender.class);
+    private static final double SHRINKAGE = 5;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final List<CooccurrenceRow> rows = new ArrayList<>();
+    private final Map<Long, Long> scheduleMovies = new ConcurrentHashMap<>();
+    private final Map<String, RecentMovies> users;
+    private final JdbcTemplate jdbcTemplate;
+    private final int moviesPerUser;
+    private final int maxRelated;
+    private long[] movieIds = new long[64];
+    private int[] viewers = new int[64];
+
+    public MovieRecommender(JdbcTemplate jdbcTemplate,
+                            @Value("${cinemate.recommendations.max-users:100000}") int maxUsers,
+                            @Value("${cinemate.recommendations.movies-per-user:20}") int moviesPerUser,
+                            @Value("${cinemate.recommendations.max-related:1000}") int maxRelated) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.moviesPerUser = moviesPerUser;
+        this.maxRelated = maxRelated;
+        this.users = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RecentMovies> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    /**
+     * Replays the stored history once the application has started,
+     * afterwards the counts are kept up to date with UserHistoryWrittenEvent
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.nanoTime();
+        int[] count = new int[1];
+        lock.writeLock().lock();
+        try {
+            jdbcTemplate.query("SELECT h.user_id, s.movie_id FROM user_history h JOIN schedule s ON s.id = h.schedule_id "
+                    + "WHERE h.user_id IS NOT NULL ORDER BY h.id", rs -> {
+                record(rs.getString(1), rs.getLong(2));
+                count[0]++;
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Loaded {} user histories in {} ms", count[0], (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * @param event - history that was written
+     */
+    @EventListener
+    public void onUserHistoryWritten(UserHistoryWrittenEvent event) {
+        Map<Long, Long> movies = resolveMovies(event.entries());
+        lock.writeLock().lock();
+        try {
+            for (UserHistoryWrittenEvent.Entry entry : event.entries()) {
+                Long movieId = movies.get(entry.scheduleId());
+                if (entry.userId() != null && movieId != null) {
+                    record(entry.userId(), movieId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the movie against the recent movies of the user
+     *
+     * @param userId  - anonymous id of the user
+     * @param movieId - id of the watched movie
+     */
+    public void view(String userId, long movieId) {
+        lock.writeLock().lock();
+        try {
+            record(userId, movieId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param movieId - id of the movie
+     * @param limit   - how many movies are wanted
+     * @return - ids of the movies most often watched by the same users, the most similar first
+     */
+    public List<Long> related(long movieId, int limit) {
+        lock.readLock().lock();
+        try {
+            Integer ordinal = ordinals.get(movieId);
+            if (ordinal == null) {
+                return List.of();
+            }
+            TopOrdinals top = new TopOrdinals(limit);
+            rows.get(ordinal).forEach((other, count) -> top.offer(similarity(count, ordinal, other), other));
+            return toMovieIds(top.ordinals());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Scores every movie by its similarity to the recent movies of the user.
+     * Users without history get the most watched movies
+     *
+     * @param userId - anonymous id of the user
+     * @param limit  - how many movies are wanted
+     * @return - ids of the recommended movies the user has not watched recently, the best first
+     */
+    public List<Long> recommend(String userId, int limit) {
+        lock.readLock().lock();
+        try {
+            RecentMovies recent = users.get(userId);
+            TopOrdinals top = new TopOrdinals(limit);
+            if (recent == null || recent.size == 0) {
+                for (int ordinal = 0; ordinal < rows.size(); ordinal++) {
+                    top.offer(viewers[ordinal], ordinal);
+                }
+                return toMovieIds(top.ordinals());
+            }
+            double[] scores = new double[rows.size()];
+            for (int i = 0; i < recent.size; i++) {
+                int watched = recent.ordinals[i];
+                rows.get(watched).forEach((other, count) -> scores[other] += similarity(count, watched, other));
+            }
+            for (int i = 0; i < recent.size; i++) {
+                scores[recent.ordinals[i]] = 0;
+            }
+            for (int ordinal = 0; ordinal < scores.length; ordinal++) {
+                if (scores[ordinal] > 0) {
+                    top.offer(scores[ordinal], ordinal);
+                }
+            }
+            return toMovieIds(top.ordinals());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return - number of users whose recent movies are remembered
+     */
+    public int users() {
+        lock.readLock().lock();
+        try {
+            return users.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Long> toMovieIds(int[] ordinals) {
+        List<Long> result = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) {
+            result.add(movieIds[ordinal]);
+        }
+        return result;
+    }
+
+    private double similarity(int count, int a, int b) {
+        return count / Math.sqrt((double) viewers[a] * viewers[b]) * count / (count + SHRINKAGE);
+    }
+
+    /**
+     * Must be called with the write lock. A movie the user watched recently is not counted again
+     */
+    private void record(String userId, long movieId) {
+        int ordinal = ordinal(movieId);
+        // Reinserted so the users are in the order they were last active, reads do not reorder the map
+        RecentMovies recent = users.remove(userId);
+        if (recent == null) {
+            recent = new RecentMovies(moviesPerUser);
+        }
+        users.put(userId, recent);
+        if (recent.contains(ordinal)) {
+            return;
+        }
+        viewers[ordinal]++;
+        CooccurrenceRow row = rows.get(ordinal);
+        for (int i = 0; i < recent.size; i++) {
+            int other = recent.ordinals[i];
+            // Both rows are checked first, otherwise a full row would leave the pair counted on one side only
+            if (makeRoom(ordinal, other) && makeRoom(other, ordinal)) {
+                row.increment(other);
+                rows.get(other).increment(ordinal);
+            }
+        }
+        recent.add(ordinal);
+    }
+
+    /**
+     * Drops the movies seen together only once from a full row, and the movie from their rows
+     *
+     * @return - false if the row is full of movies seen together more than once
+     */
+    private boolean makeRoom(int ordinal, int other) {
+        CooccurrenceRow row = rows.get(ordinal);
+        if (row.hasRoomFor(other)) {
+            return true;
+        }
+        int[] dropped = row.pruneSingles();
+        for (int droppedOrdinal : dropped) {
+            rows.get(droppedOrdinal).remove(ordinal);
+        }
+        return dropped.length > 0;
+    }
+
+    private int ordinal(long movieId) {
+        Integer ordinal = ordinals.get(movieId);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        ordinal = rows.size();
+        if (ordinal == movieIds.length) {
+            movieIds = Arrays.copyOf(movieIds, ordinal * 2);
+            viewers = Arrays.copyOf(viewers, ordinal * 2);
+        }
+        movieIds[ordinal] = movieId;
+        ordinals.put(movieId, ordinal);
+        rows.add(new CooccurrenceRow(maxRelated));
+        return ordinal;
+    }
+
+    /**
+     * Finds the movies of the seances, the seances that are not known yet are read with one query
+     */
+    private Map<Long, Long> resolveMovies(List<UserHistoryWrittenEvent.Entry> entries) {
+        Set<Long> missing = new HashSet<>();
+        Map<Long, Long> movies = new HashMap<>();
+        for (UserHistoryWrittenEvent.Entry entry : entries) {
+            if (entry.userId() == null || entry.scheduleId() == UserHistoryWriter.NO_SCHEDULE) {
+                continue;
+            }
+            Long movieId = scheduleMovies.get(entry.scheduleId());
+            if (movieId != null) {
+                movies.put(entry.scheduleId(), movieId);
+            } else {
+                missing.add(entry.scheduleId());
+            }
+        }
+        if (!missing.isEmpty()) {
+            String placeholders = String.join(", ", Collections.nCopies(missing.size(), "?"));
+            jdbcTemplate.query("SELECT id, movie_id FROM schedule WHERE id IN (" + placeholders + ")",
+                    rs -> {
+                        movies.put(rs.getLong(1), rs.getLong(2));
+                    }, missing.toArray());
+            scheduleMovies.putAll(movies);
+        }
+        return movies;
+    }
+
+    /**
+     * The last movies of one user, oldest are overwritten first
+     */
+    private static final class RecentMovies {
+        private final int[] ordinals;
+        private int size;
+        private int next;
+
+        private RecentMovies(int capacity) {
+            this.ordinals = new int[capacity];
+        }
+
+        boolean contains(int ordinal) {
+            for (int i = 0; i < size; i++) {
+                if (ordinals[i] == ordinal) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void add(int ordinal) {
+            ordinals[next] = ordinal;
+            next = (next + 1) % ordinals.length;
+            size = Math.min(size + 1, ordinals.length);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Movie;
+
+/**
+ * Published after a movie has been saved to the catalog
+ * @param movie - saved movie
+ */
+public record MovieSavedEvent(Movie movie) {
+}
@@ -0,0 +1,380 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Movie;
+import com.proovitoo.cinemate.entity.MovieSummary;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * In-memory full-text index of the title, cast, director, writer and plot of the movies.
+ * Text is split into lowercase words without accents, every word has a posting list with the number of times
+ * it is in each field of each movie. The vocabulary is also kept sorted, so the last word of a query matches
+ * every word it is a prefix of, which makes the search usable for type-ahead.
+ * Movies that contain all the query words are ranked with BM25F, matches in the title weigh the most.
+ */
+@Component
+public class MovieSearchIndex {
+    private static final Field[] FIELDS = {
+            new Field(Movie::getMovieName, 3.0f),
+            new Field(Movie::getActors, 2.0f),
+            new Field(Movie::getDirector, 2.0f),
+            new Field(Movie::getWriter, 1.5f),
+            new Field(Movie::getDescription, 1.0f)};
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MAX_QUERY_WORDS = 10;
+    private static final int MAX_PREFIX_WORDS = 200;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> words = new HashMap<>();
+    private final NavigableSet<String> vocabulary = new TreeSet<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final List<Document> documents = new ArrayList<>();
+    private final long[] totalLengths = new long[FIELDS.length];
+
+    private record Field(Function<Movie, String> text, float boost) {
+    }
+
+    /**
+     * Replaces the whole index
+     * @param catalog - all the movies
+     */
+    public void rebuild(Collection<Movie> catalog) {
+        lock.writeLock().lock();
+        try {
+            words.clear();
+            vocabulary.clear();
+            ordinals.clear();
+            documents.clear();
+            Arrays.fill(totalLengths, 0);
+            catalog.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the movie or replaces its previous version
+     * @param movie - saved movie
+     */
+    public void index(Movie movie) {
+        lock.writeLock().lock();
+        try {
+            add(movie);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onMovieSaved(MovieSavedEvent event) {
+        index(event.movie());
+    }
+
+    /**
+     * @param query - words to search for, the last one may be the beginning of a word
+     * @param limit - how many movies are wanted
+     * @return - movies containing all the words, the most relevant first
+     */
+    public List<MovieSummary> search(String query, int limit) {
+        List<String> queryWords = tokenize(query);
+        if (queryWords.isEmpty()) {
+            return List.of();
+        }
+        if (queryWords.size() > MAX_QUERY_WORDS) {
+            queryWords = queryWords.subList(0, MAX_QUERY_WORDS);
+        }
+        lock.readLock().lock();
+        try {
+            List<Collection<Postings>> matches = new ArrayList<>();
+            for (int i = 0; i < queryWords.size(); i++) {
+                String word = queryWords.get(i);
+                Collection<Postings> postings = i == queryWords.size() - 1 ? prefixed(word) : exact(word);
+                if (postings.isEmpty()) {
+                    return List.of();
+                }
+                matches.add(postings);
+            }
+            // The rarest word picks the candidates, the other words can only drop them
+            matches.sort(Comparator.comparingLong(MovieSearchIndex::documentCount));
+            int size = documents.size();
+            float[] averageLengths = new float[FIELDS.length];
+            for (int field = 0; field < FIELDS.length; field++) {
+                averageLengths[field] = Math.max(1, (float) totalLengths[field] / size);
+            }
+            Candidates candidates = new Candidates((int) documentCount(matches.get(0)));
+            for (Collection<Postings> postings : matches) {
+                // A movie matching several words of the prefix is scored by its best word only
+                for (Postings posting : postings) {
+                    float idf = (float) Math.log(1 + (size - posting.size + 0.5) / (posting.size + 0.5));
+                    for (int p = 0; p < posting.size; p++) {
+                        int ordinal = posting.ordinals[p];
+                        candidates.offer(ordinal, idf * weight(posting.frequencies[p], documents.get(ordinal), averageLengths));
+                    }
+                }
+                candidates.endWord();
+            }
+            TopOrdinals top = new TopOrdinals(Math.max(0, Math.min(limit, candidates.size)));
+            candidates.collect(top);
+            return Arrays.stream(top.ordinals()).mapToObj(ordinal -> documents.get(ordinal).summary).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * BM25F: term frequencies of the fields are normalized by the field length and boosted before saturation
+     */
+    private static float weight(long frequencies, Document document, float[] averageLengths) {
+        float frequency = 0;
+        for (int field = 0; field < FIELDS.length; field++) {
+            int count = frequency(frequencies, field);
+            if (count > 0) {
+                float normalization = 1 - B + B * document.lengths[field] / averageLengths[field];
+                frequency += FIELDS[field].boost * count / normalization;
+            }
+        }
+        return frequency / (K1 + frequency);
+    }
+
+    private Collection<Postings> exact(String word) {
+        Postings postings = words.get(word);
+        return postings == null ? List.of() : List.of(postings);
+    }
+
+    /**
+     * Words starting with the prefix, when there are too many of them only the ones in the most movies are kept
+     */
+    private Collection<Postings> prefixed(String prefix) {
+        List<Postings> postings = new ArrayList<>();
+        for (String word : vocabulary.subSet(prefix, true, prefix + Character.MAX_VALUE, false)) {
+            postings.add(words.get(word));
+        }
+        if (postings.size() > MAX_PREFIX_WORDS) {
+            postings.sort(Comparator.comparingInt((Postings posting) -> posting.size).reversed());
+            return postings.subList(0, MAX_PREFIX_WORDS);
+        }
+        return postings;
+    }
+
+    /**
+     * @return - number of postings of the words, an upper bound of the movies containing any of them
+     */
+    private static long documentCount(Collection<Postings> postings) {
+        long count = 0;
+        for (Postings posting : postings) {
+            count += posting.size;
+        }
+        return count;
+    }
+
+    private void add(Movie movie) {
+        Integer ordinal = ordinals.get(movie.getId());
+        if (ordinal == null) {
+            ordinal = documents.size();
+            ordinals.put(movie.getId(), ordinal);
+            documents.add(null);
+        } else {
+            remove(ordinal);
+        }
+        Map<String, Long> frequencies = new HashMap<>();
+        int[] lengths = new int[FIELDS.length];
+        for (int field = 0; field < FIELDS.length; field++) {
+            List<String> fieldWords = tokenize(FIELDS[field].text.apply(movie));
+            lengths[field] = fieldWords.size();
+            totalLengths[field] += fieldWords.size();
+            for (String word : fieldWords) {
+                frequencies.put(word, increment(frequencies.getOrDefault(word, 0L), field));
+            }
+        }
+        for (Map.Entry<String, Long> entry : frequencies.entrySet()) {
+            words.computeIfAbsent(entry.getKey(), word -> {
+                vocabulary.add(word);
+                return new Postings();
+            }).add(ordinal, entry.getValue());
+        }
+        documents.set(ordinal, new Document(MovieSummary.of(movie), lengths, frequencies.keySet().toArray(String[]::new)));
+    }
+
+    private void remove(int ordinal) {
+        Document document = documents.get(ordinal);
+        for (int field = 0; field < FIELDS.length; field++) {
+            totalLengths[field] -= document.lengths[field];
+        }
+        for (String word : document.words) {
+            Postings postings = words.get(word);
+            if (postings != null && postings.remove(ordinal) && postings.size == 0) {
+                words.remove(word);
+                vocabulary.remove(word);
+            }
+        }
+    }
+
+    /**
+     * Frequencies of the fields are packed into a long, one byte per field
+     */
+    private static long increment(long frequencies, int field) {
+        return frequency(frequencies, field) == 0xFF ? frequencies : frequencies + (1L << (field * 8));
+    }
+
+    private static int frequency(long frequencies, int field) {
+        return (int) (frequencies >>> (field * 8) & 0xFF);
+    }
+
+    /**
+     * @param text - any text
+     * @return - lowercase words without accents
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        String normalized = (isAscii(text) ? text : Normalizer.normalize(text, Normalizer.Form.NFD)).toLowerCase(Locale.ROOT);
+        List<String> result = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK && !word.isEmpty()) {
+                result.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (!word.isEmpty()) {
+            result.add(word.toString());
+        }
+        return result;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record Document(MovieSummary summary, int[] lengths, String[] words) {
+    }
+
+    /**
+     * Movies containing one word with the frequencies of the word in their fields
+     */
+    private static final class Postings {
+        private int[] ordinals = new int[4];
+        private long[] frequencies = new long[4];
+        private int size;
+
+        void add(int ordinal, long fieldFrequencies) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            ordinals[size] = ordinal;
+            frequencies[size] = fieldFrequencies;
+            size++;
+        }
+
+        boolean remove(int ordinal) {
+            for (int i = 0; i < size; i++) {
+                if (ordinals[i] == ordinal) {
+                    size--;
+                    ordinals[i] = ordinals[size];
+                    frequencies[i] = frequencies[size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Scores of the movies matching every query word so far, an open addressing map from the ordinal.
+     * Movies are added only by the first word, the later words keep the ones they also match
+     */
+    private static final class Candidates {
+        private static final int EMPTY = -1;
+
+        private final int[] ordinals;
+        private final float[] scores;
+        private final float[] best;
+        private final int[] matched;
+        private final int mask;
+        private int words;
+        /** Number of movies that matched every finished word */
+        private int size;
+
+        Candidates(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(1, expected) * 2 - 1) << 1;
+            ordinals = new int[capacity];
+            Arrays.fill(ordinals, EMPTY);
+            scores = new float[capacity];
+            best = new float[capacity];
+            matched = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        /**
+         * @param ordinal - movie containing the current word
+         * @param score   - score of the word in the movie
+         */
+        void offer(int ordinal, float score) {
+            int hash = ordinal * 0x9E3779B9;
+            int slot = (hash ^ hash >>> 16) & mask;
+            while (ordinals[slot] != ordinal) {
+                if (ordinals[slot] == EMPTY) {
+                    if (words > 0) {
+                        return;
+                    }
+                    ordinals[slot] = ordinal;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (matched[slot] == words) {
+                best[slot] = Math.max(best[slot], score);
+            }
+        }
+
+        /**
+         * Adds the best scores of the current word, movies without it are out from now on
+         */
+        void endWord() {
+            size = 0;
+            for (int slot = 0; slot < ordinals.length; slot++) {
+                if (ordinals[slot] != EMPTY && matched[slot] == words && best[slot] > 0) {
+                    scores[slot] += best[slot];
+                    best[slot] = 0;
+                    matched[slot]++;
+                    size++;
+                }
+            }
+            words++;
+        }
+
+        void collect(TopOrdinals top) {
+            for (int slot = 0; slot < ordinals.length; slot++) {
+                if (ordinals[slot] != EMPTY && matched[slot] == words) {
+                    top.offer(scores[slot], ordinals[slot]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.MovieOccupancy;
+import com.proovitoo.cinemate.entity.Schedule;
+import com.proovitoo.cinemate.entity.ScheduleOccupancy;
+import com.proovitoo.cinemate.entity.SlotOccupancy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sold tickets per seance, per movie and day and per hour, kept in memory.
+ * The counters are loaded with one aggregate query at startup and afterwards every committed purchase only adds
+ * to the LongAdders of its seance, movie and hour, so reading them never touches the seat table.
+ * Seances created later are registered with nothing sold when their seats are generated. A seance that is still
+ * unknown is counted by the purchase before it updates the seats, so the count never includes the purchase itself.
+ */
+@Component
+public class OccupancyAnalytics {
+    private static final Logger log = LoggerFactory.getLogger(OccupancyAnalytics.class);
+    private static final String SCHEDULE_TOTALS = "SELECT s.id, s.movie_id, s.date_time, COUNT(seat.id), "
+            + "COALESCE(SUM(CASE WHEN seat.occupied THEN 1 ELSE 0 END), 0) "
+            + "FROM schedule s LEFT JOIN seat ON seat.schedule_id = s.id WHERE s.date_time IS NOT NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, ScheduleCounter> schedules = new ConcurrentHashMap<>();
+    private final Map<LocalDate, Day> days = new ConcurrentHashMap<>();
+
+    public OccupancyAnalytics(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Counts the sold tickets of every seance once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.nanoTime();
+        jdbcTemplate.query(SCHEDULE_TOTALS + " GROUP BY s.id, s.movie_id, s.date_time", rs -> {
+            register(rs.getLong(1), rs.getObject(2, Long.class), rs.getTimestamp(3).toLocalDateTime(), rs.getLong(4), rs.getLong(5));
+        });
+        log.info("Counted the tickets of {} seances in {} ms", schedules.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * @param event - seances whose seats were created, after they are committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSeatsGenerated(SeatsGeneratedEvent event) {
+        for (Schedule schedule : event.schedules()) {
+            if (schedule.getDateTime() != null) {
+                Long movieId = schedule.getMovie() != null ? schedule.getMovie().getId() : null;
+                register(schedule.getId(), movieId, schedule.getDateTime(), event.seatsPerSchedule(), 0);
+            }
+        }
+    }
+
+    /**
+     * Counts the seances that are not registered yet, called by a purchase before it updates the seats.
+     * Purchases that committed earlier already registered the seance, so everything the query counts was sold
+     * before the counters existed and every later purchase is added by onSeatsOccupied
+     *
+     * @param scheduleIds - seances of the seats being bought
+     */
+    public void track(Collection<Long> scheduleIds) {
+        for (Long scheduleId : scheduleIds) {
+            if (scheduleId != null && !schedules.containsKey(scheduleId)) {
+                jdbcTemplate.query(SCHEDULE_TOTALS + " AND s.id = ? GROUP BY s.id, s.movie_id, s.date_time", rs -> {
+                    register(rs.getLong(1), rs.getObject(2, Long.class), rs.getTimestamp(3).toLocalDateTime(), rs.getLong(4), rs.getLong(5));
+                }, scheduleId);
+            }
+        }
+    }
+
+    /**
+     * @param event - seats that were bought, after the purchase is committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSeatsOccupied(SeatsOccupiedEvent event) {
+        ScheduleCounter counter = schedules.get(event.scheduleId());
+        // Only seances without a start time are never registered
+        if (counter != null) {
+            counter.add(event.seatIds().size());
+        }
+    }
+
+    /**
+     * @param scheduleId - id of the seance
+     * @return - tickets sold for the seance, null if the seance is unknown
+     */
+    public ScheduleOccupancy getSchedule(Long scheduleId) {
+        ScheduleCounter counter = schedules.get(scheduleId);
+        return counter == null ? null : counter.toOccupancy();
+    }
+
+    /**
+     * @param date - day of the seances
+     * @return - tickets sold for every seance of the day ordered by the start time
+     */
+    public List<ScheduleOccupancy> getSchedules(LocalDate date) {
+        Day day = days.get(date);
+        if (day == null) {
+            return List.of();
+        }
+        return day.schedules.values().stream()
+                .map(ScheduleCounter::toOccupancy)
+                .sorted(Comparator.comparing(ScheduleOccupancy::dateTime).thenComparing(ScheduleOccupancy::scheduleId))
+                .toList();
+    }
+
+    /**
+     * @param date - day of the seances
+     * @return - tickets sold for every movie shown on the day, the best selling first
+     */
+    public List<MovieOccupancy> getMovies(LocalDate date) {
+        Day day = days.get(date);
+        if (day == null) {
+            return List.of();
+        }
+        return day.movies.entrySet().stream()
+                .map(entry -> {
+                    Counter counter = entry.getValue();
+                    long sold = counter.sold.sum();
+                    long seats = counter.seats.sum();
+                    return new MovieOccupancy(entry.getKey(), counter.seances.sum(), sold, seats, fillRate(sold, seats));
+                })
+                .sorted(Comparator.comparingLong(MovieOccupancy::sold).reversed().thenComparing(MovieOccupancy::movieId))
+                .toList();
+    }
+
+    /**
+     * @param date - day of the seances
+     * @return - tickets sold for every hour of the day that has seances, in the order of the hours
+     */
+    public List<SlotOccupancy> getSlots(LocalDate date) {
+        Day day = days.get(date);
+        if (day == null) {
+            return List.of();
+        }
+        return day.slots.entrySet().stream()
+                .map(entry -> {
+                    Counter counter = entry.getValue();
+                    long sold = counter.sold.sum();
+                    long seats = counter.seats.sum();
+                    return new SlotOccupancy(entry.getKey(), counter.seances.sum(), sold, seats, fillRate(sold, seats));
+                })
+                .toList();
+    }
+
+    /**
+     * Seances without a movie are only counted for their hour
+     */
+    private void register(long scheduleId, Long movieId, LocalDateTime start, long seats, long sold) {
+        schedules.computeIfAbsent(scheduleId, id -> {
+            Day day = days.computeIfAbsent(start.toLocalDate(), date -> new Day());
+            Counter movie = movieId != null ? day.movies.computeIfAbsent(movieId, k -> new Counter()) : null;
+            Counter slot = day.slots.computeIfAbsent(start.truncatedTo(ChronoUnit.HOURS), k -> new Counter());
+            ScheduleCounter counter = new ScheduleCounter(scheduleId, movieId, start, seats, movie, slot);
+            slot.addSeance(seats);
+            if (movie != null) {
+                movie.addSeance(seats);
+            }
+            counter.add(sold);
+            day.schedules.put(scheduleId, counter);
+            return counter;
+        });
+    }
+
+    private static double fillRate(long sold, long seats) {
+        return seats == 0 ? 0 : (double) sold / seats;
+    }
+
+    /**
+     * Seances, movies and hours of one day
+     */
+    private static final class Day {
+        private final Map<Long, ScheduleCounter> schedules = new ConcurrentHashMap<>();
+        private final Map<Long, Counter> movies = new ConcurrentHashMap<>();
+        private final Map<LocalDateTime, Counter> slots = new ConcurrentSkipListMap<>();
+    }
+
+    private static final class Counter {
+        private final LongAdder seances = new LongAdder();
+        private final LongAdder seats = new LongAdder();
+        private final LongAdder sold = new LongAdder();
+
+        void addSeance(long seatCount) {
+            seances.increment();
+            seats.add(seatCount);
+        }
+    }
+
+    /**
+     * Sold tickets of one seance, also added to the counters of its movie and hour
+     */
+    private record ScheduleCounter(Long scheduleId, Long movieId, LocalDateTime dateTime, long seats,
+                                   Counter movie, Counter slot, LongAdder sold) {
+
+        private ScheduleCounter(Long scheduleId, Long movieId, LocalDateTime dateTime, long seats, Counter movie, Counter slot) {
+            this(scheduleId, movieId, dateTime, seats, movie, slot, new LongAdder());
+        }
+
+        void add(long tickets) {
+            sold.add(tickets);
+            slot.sold.add(tickets);
+            if (movie != null) {
+                movie.sold.add(tickets);
+            }
+        }
+
+        ScheduleOccupancy toOccupancy() {
+            long tickets = sold.sum();
+            return new ScheduleOccupancy(scheduleId, movieId, dateTime, tickets, seats, fillRate(tickets, seats));
+        }
+    }
+}
@@ -1,31 +1,170 @@
 package com.proovitoo.cinemate.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.proovitoo.cinemate.entity.Movie;
 import com.proovitoo.cinemate.entity.OmdbMovieResponse;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
 @Service
 public class OmdbService {
+    private static final Logger log = LoggerFactory.getLogger(OmdbService.class);
+
     private final RestTemplate restTemplate;
-    private final String apiKey = "e93c727c";
+    private final ObjectMapper objectMapper;
+    private final String apiUrl;
+    private final String apiKey;
+    private final Path cacheDirectory;
+    private final int parallelism;
+    private final boolean virtualThreads;
 
-    public OmdbService(RestTemplate restTemplate) {
+    public OmdbService(RestTemplate restTemplate, ObjectMapper objectMapper,
+                       @Value("${omdb.api-url:http://www.omdbapi.com/}") String apiUrl,
+                       @Value("${omdb.api-key:e93c727c}") String apiKey,
+                       @Value("${omdb.cache-dir:omdb-cache}") Path cacheDirectory,
+                       @Value("${omdb.import-parallelism:4}") int parallelism,
+                       @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
         this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+        this.apiUrl = apiUrl;
+        this.apiKey = apiKey;
+        this.cacheDirectory = cacheDirectory;
+        this.parallelism = Math.max(1, parallelism);
+        this.virtualThreads = virtualThreads;
     }
 
+    /**
+     * Fetches data of several movies concurrently.
+     * With virtual threads enabled every title gets its own virtual thread, otherwise the titles share a pool of
+     * platform threads. Either way a semaphore lets at most omdb.import-parallelism of them call OMDb at a time
+     * @param titles - titles of the movies
+     * @return - Movie entities in the order of the titles, titles that could not be fetched are left out
+     */
+    @Timed(value = "cinemate.omdb.import", histogram = true)
+    public List<Movie> fetchMovieData(List<String> titles) {
+        Semaphore permits = new Semaphore(parallelism);
+        try (ExecutorService executor = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(parallelism)) {
+            List<CompletableFuture<Movie>> futures = new ArrayList<>();
+            for (String title : titles) {
+                futures.add(CompletableFuture.supplyAsync(() -> fetchMovieDataWithPermit(title, permits), executor));
+            }
+            List<Movie> movies = new ArrayList<>();
+            for (CompletableFuture<Movie> future : futures) {
+                Movie movie = future.join();
+                if (movie != null) {
+                    movies.add(movie);
+                }
+            }
+            return movies;
+        }
+    }
 
     /**
-     * Fetches movie data from OMDb API
+     * Fetches movie data from OMDb API.
+     * Responses are stored in omdb.cache-dir and later requests for the same title are read from there
      * @param title - title of the movie
-     * @return - Movie entity
+     * @return - Movie entity or null if OMDb does not know the title
      */
     public Movie fetchMovieData(String title) {
-        String url = String.format("http://www.omdbapi.com/?t=%s&apikey=%s", title, apiKey);
-        OmdbMovieResponse response = restTemplate.getForObject(url, OmdbMovieResponse.class);
+        Path cacheFile = cacheDirectory.resolve(cacheFileName(title));
+        String json = readCache(cacheFile);
+        boolean cached = json != null;
+        if (!cached) {
+            json = restTemplate.getForObject(apiUrl + "?t={title}&apikey={apiKey}", String.class, title, apiKey);
+        }
+        OmdbMovieResponse response = parse(json);
+        if (response == null || !"True".equalsIgnoreCase(response.getResponse())) {
+            return null;
+        }
+        if (!cached) {
+            writeCache(cacheFile, json);
+        }
         return mapToMovie(response);
     }
 
+    private Movie fetchMovieDataWithPermit(String title, Semaphore permits) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        try {
+            return fetchMovieDataSafely(title);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Movie fetchMovieDataSafely(String title) {
+        try {
+            return fetchMovieData(title);
+        } catch (RuntimeException e) {
+            log.warn("Could not fetch movie data for '{}'", title, e);
+            return null;
+        }
+    }
+
+    private OmdbMovieResponse parse(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, OmdbMovieResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid response from OMDb API", e);
+        }
+    }
+
+    private String readCache(Path cacheFile) {
+        if (!Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+        try {
+            return Files.readString(cacheFile, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the raw response next to the others, the file is moved in place so readers never see half of it
+     */
+    private void writeCache(Path cacheFile, String json) {
+        try {
+            Files.createDirectories(cacheDirectory);
+            Path temporary = Files.createTempFile(cacheDirectory, "omdb", ".tmp");
+            Files.writeString(temporary, json, StandardCharsets.UTF_8);
+            Files.move(temporary, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not cache OMDb response in {}", cacheFile, e);
+        }
+    }
+
+    private static String cacheFileName(String title) {
+        return title.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-") + ".json";
+    }
+
     /**
      * Maps the response to Movie entity
      * @param response - response from the API
@@ -0,0 +1,121 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Seat;
+import com.proovitoo.cinemate.entity.SeatMap;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Seats of one seance at a certain occupancy version, held seats are not free for recommendations.
+ * The bitmaps of the seat map are encoded once and the recommendations are memoized by the number of tickets
+ * and the number of alternatives.
+ */
+class ScheduleSeats {
+    private final Long scheduleId;
+    private final long version;
+    private final HallLayout layout;
+    private final SeatGrid grid;
+    private final byte[] seats;
+    private final byte[] occupied;
+    private final byte[] held;
+    private final long[] seatIds;
+    private final Map<Long, SeatMap> seatMaps = new ConcurrentHashMap<>();
+
+    ScheduleSeats(Long scheduleId, long version, List<Seat> seatList, Set<Long> heldSeatIds, HallLayout layout) {
+        this.scheduleId = scheduleId;
+        this.version = version;
+        this.layout = layout;
+        this.grid = new SeatGrid(layout.getRows(), layout.getSeatsPerRow());
+
+        int positions = layout.getRows() * layout.getSeatsPerRow();
+        long[] idsByPosition = new long[positions];
+        this.seats = new byte[(positions + 7) / 8];
+        this.occupied = new byte[(positions + 7) / 8];
+        this.held = new byte[(positions + 7) / 8];
+        for (Seat seat : seatList) {
+            if (!layout.isSeat(seat.getSeatRow(), seat.getSeatNumber())) {
+                continue;
+            }
+            int position = (seat.getSeatRow() - 1) * layout.getSeatsPerRow() + seat.getSeatNumber() - 1;
+            idsByPosition[position] = seat.getId();
+            seats[position >>> 3] |= (byte) (1 << (position & 7));
+            if (seat.isOccupied()) {
+                occupied[position >>> 3] |= (byte) (1 << (position & 7));
+            } else if (heldSeatIds.contains(seat.getId())) {
+                held[position >>> 3] |= (byte) (1 << (position & 7));
+            } else {
+                grid.setFree(seat.getSeatRow(), seat.getSeatNumber(), true);
+            }
+        }
+        this.seatIds = encodeRuns(idsByPosition);
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param numberOfTickets - number of the tickets being bought
+     * @param alternatives    - how many alternative blocks are wanted besides the recommended one
+     * @return - seat map of the seance with the recommended blocks
+     */
+    SeatMap recommend(int numberOfTickets, int alternatives) {
+        // Groups wider than a row are split over adjacent rows by the recommender
+        if (numberOfTickets < 1 || numberOfTickets > SeatRecommender.MAX_GROUP_ROWS * grid.getSeatsPerRow()) {
+            return toSeatMap(List.of(), List.of());
+        }
+        long key = (long) numberOfTickets << 32 | alternatives;
+        return seatMaps.computeIfAbsent(key, k -> findSeats(numberOfTickets, alternatives));
+    }
+
+    private SeatMap findSeats(int numberOfTickets, int alternatives) {
+        if (alternatives > 0) {
+            List<SeatBlock> blocks = SeatRecommender.findBestBlocks(grid, layout, numberOfTickets, alternatives + 1);
+            if (!blocks.isEmpty()) {
+                return toSeatMap(blocks.subList(0, 1), blocks.subList(1, blocks.size()));
+            }
+        }
+        return toSeatMap(SeatRecommender.findBestGroup(grid, layout, numberOfTickets), List.of());
+    }
+
+    private SeatMap toSeatMap(List<SeatBlock> blocks, List<SeatBlock> alternativeBlocks) {
+        List<List<SeatMap.Block>> alternatives = alternativeBlocks.stream()
+                .map(block -> List.of(toBlock(block)))
+                .toList();
+        return new SeatMap(scheduleId, version, grid.getRows(), grid.getSeatsPerRow(), seats, occupied, held, seatIds,
+                blocks.stream().map(ScheduleSeats::toBlock).toList(), alternatives);
+    }
+
+    private static SeatMap.Block toBlock(SeatBlock block) {
+        return new SeatMap.Block(block.row(), block.firstSeat(), block.size());
+    }
+
+    /**
+     * Run-length encodes the ids of the existing seats as pairs of the first id and the run length
+     */
+    private static long[] encodeRuns(long[] idsByPosition) {
+        long[] runs = new long[8];
+        int length = 0;
+        long previous = 0;
+        for (long id : idsByPosition) {
+            if (id == 0) {
+                continue;
+            }
+            if (length > 0 && id == previous + 1) {
+                runs[length - 1]++;
+            } else {
+                if (length + 2 > runs.length) {
+                    runs = Arrays.copyOf(runs, runs.length * 2);
+                }
+                runs[length++] = id;
+                runs[length++] = 1;
+            }
+            previous = id;
+        }
+        return Arrays.copyOf(runs, length);
+    }
+}
@@ -0,0 +1,18 @@
+package com.proovitoo.cinemate.service;
+
+/**
+ * Contiguous block of seats in one row
+ * @param row - number of the row
+ * @param firstSeat - number of the leftmost seat
+ * @param size - how many seats the block has
+ */
+public record SeatBlock(int row, int firstSeat, int size) {
+
+    public int lastSeat() {
+        return firstSeat + size - 1;
+    }
+
+    public boolean contains(int seatRow, int seatNumber) {
+        return seatRow == row && seatNumber >= firstSeat && seatNumber <= lastSeat();
+    }
+}
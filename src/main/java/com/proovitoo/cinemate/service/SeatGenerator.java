@@ -0,0 +1,87 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Schedule;
+import com.proovitoo.cinemate.entity.Seat;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Bulk generation of seats.
+ * Seats are written with JDBC batches instead of one entity at a time and their ids are
+ * reserved from seat_seq in the same blocks Hibernate uses, so both can keep creating seats.
+ * The new seances are announced with SeatsGeneratedEvent.
+ */
+@Component
+public class SeatGenerator {
+    private static final int BATCH_SIZE = 1000;
+    private static final String INSERT_SEAT = "INSERT INTO seat (id, seat_row, seat_number, occupied, version, schedule_id) "
+            + "VALUES (?, ?, ?, FALSE, 0, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public SeatGenerator(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Creates the seats of the template for every schedule
+     *
+     * @param schedules - saved schedules
+     * @param template  - hall the seats are stamped from
+     * @return - number of created seats
+     */
+    @Transactional
+    public long generateSeats(List<Schedule> schedules, HallTemplate template) {
+        long total = (long) schedules.size() * template.size();
+        IdBlock ids = new IdBlock();
+        for (long offset = 0; offset < total; offset += BATCH_SIZE) {
+            int batchSize = (int) Math.min(BATCH_SIZE, total - offset);
+            long batchStart = offset;
+            jdbcTemplate.batchUpdate(INSERT_SEAT, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    long index = batchStart + i;
+                    int position = (int) (index % template.size());
+                    ps.setLong(1, ids.next());
+                    ps.setInt(2, template.seatRow(position));
+                    ps.setInt(3, template.seatNumber(position));
+                    ps.setLong(4, schedules.get((int) (index / template.size())).getId());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return batchSize;
+                }
+            });
+        }
+        eventPublisher.publishEvent(new SeatsGeneratedEvent(List.copyOf(schedules), template.size()));
+        return total;
+    }
+
+    /**
+     * Hands out ids from blocks reserved from the sequence.
+     * A sequence value v owns the ids (v - block size, v], like the pooled optimizer of Hibernate
+     */
+    private class IdBlock {
+        private long next = 1;
+        private long last = 0;
+
+        long next() {
+            if (next > last) {
+                Long value = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR seat_seq", Long.class);
+                last = value;
+                next = Math.max(1, value - Seat.ID_BLOCK_SIZE + 1);
+            }
+            return next++;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Seat;
+
+import java.util.List;
+
+/**
+ * Compact occupancy bitmap of one seance.
+ * Every row is stored in long words where a set bit means that the seat exists and is free.
+ * Rows and seat numbers are 1-based like in the Seat entity.
+ */
+public class SeatGrid {
+    private final int rows;
+    private final int seatsPerRow;
+    private final int wordsPerRow;
+    private final long[] free;
+
+    public SeatGrid(int rows, int seatsPerRow) {
+        if (rows < 0 || seatsPerRow < 0) {
+            throw new IllegalArgumentException("Hall dimensions must not be negative");
+        }
+        this.rows = rows;
+        this.seatsPerRow = seatsPerRow;
+        this.wordsPerRow = (seatsPerRow + 63) >>> 6;
+        this.free = new long[rows * wordsPerRow];
+    }
+
+    /**
+     * Builds the grid from seat entities, hall dimensions are taken from the furthest seat
+     * @param seats - seats of the seance
+     * @return - grid where every unoccupied seat is marked free
+     */
+    public static SeatGrid of(List<Seat> seats) {
+        int rows = 0;
+        int seatsPerRow = 0;
+        for (Seat seat : seats) {
+            rows = Math.max(rows, seat.getSeatRow());
+            seatsPerRow = Math.max(seatsPerRow, seat.getSeatNumber());
+        }
+        SeatGrid grid = new SeatGrid(rows, seatsPerRow);
+        for (Seat seat : seats) {
+            if (!seat.isOccupied()) {
+                grid.setFree(seat.getSeatRow(), seat.getSeatNumber(), true);
+            }
+        }
+        return grid;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
+
+    public void setFree(int row, int seatNumber, boolean isFree) {
+        int index = wordIndex(row, seatNumber);
+        long mask = 1L << ((seatNumber - 1) & 63);
+        if (isFree) {
+            free[index] |= mask;
+        } else {
+            free[index] &= ~mask;
+        }
+    }
+
+    public boolean isFree(int row, int seatNumber) {
+        if (row < 1 || row > rows || seatNumber < 1 || seatNumber > seatsPerRow) {
+            return false;
+        }
+        return (free[wordIndex(row, seatNumber)] & (1L << ((seatNumber - 1) & 63))) != 0;
+    }
+
+    /**
+     * @param row - number of the row
+     * @return - how many free seats the row has
+     */
+    public int freeSeatsInRow(int row) {
+        int count = 0;
+        int offset = (row - 1) * wordsPerRow;
+        for (int i = 0; i < wordsPerRow; i++) {
+            count += Long.bitCount(free[offset + i]);
+        }
+        return count;
+    }
+
+    private int wordIndex(int row, int seatNumber) {
+        if (row < 1 || row > rows || seatNumber < 1 || seatNumber > seatsPerRow) {
+            throw new IndexOutOfBoundsException("No seat " + seatNumber + " in row " + row);
+        }
+        return (row - 1) * wordsPerRow + ((seatNumber - 1) >>> 6);
+    }
+}
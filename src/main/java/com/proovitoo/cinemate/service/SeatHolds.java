@@ -0,0 +1,284 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.SeatHold;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Seats that are held between choosing them and buying them.
+ * Holds live only in memory, they expire on a hashed timing wheel which is advanced by one ticker thread,
+ * so holding and releasing seats costs O(number of seats) no matter how many holds are active.
+ * Every change publishes SeatHoldsChangedEvent so the seat maps of the seance are rebuilt.
+ * Seats that are being bought are reserved until the purchase ends, so holds and purchases never take the same seats.
+ * The state is guarded by a ReentrantLock instead of a monitor so waiting virtual threads do not pin their carriers.
+ */
+@Component
+public class SeatHolds {
+    private static final Logger log = LoggerFactory.getLogger(SeatHolds.class);
+    private static final int WHEEL_SIZE = 1024;
+
+    private final Map<UUID, ActiveHold> holds = new HashMap<>();
+    private final Map<Long, UUID> holdsBySeat = new HashMap<>();
+    private final Map<Long, Set<Long>> heldSeatsBySchedule = new HashMap<>();
+    private final Set<Long> seatsBeingBought = new HashSet<>();
+    private final TimingWheel<UUID> wheel = new TimingWheel<>(WHEEL_SIZE);
+    private final Lock lock = new ReentrantLock();
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration ttl;
+    private final long tickNanos;
+    private ScheduledExecutorService ticker;
+    private long lastTick;
+
+    public SeatHolds(ApplicationEventPublisher eventPublisher,
+                     @Value("${cinemate.holds.ttl:10m}") Duration ttl,
+                     @Value("${cinemate.holds.tick:250ms}") Duration tick) {
+        this.eventPublisher = eventPublisher;
+        this.ttl = ttl;
+        this.tickNanos = tick.toNanos();
+        this.lastTick = System.nanoTime();
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seat-holds");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> {
+            try {
+                expire();
+            } catch (RuntimeException e) {
+                // A failing run must not cancel the ticker
+                log.warn("Could not expire seat holds", e);
+            }
+        }, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Holds all the seats or none of them
+     *
+     * @param scheduleId - id of the seance
+     * @param seatIds    - ids of the seats, they have to belong to the seance
+     * @return - the new hold
+     * @throws SeatNotAvailableException - when some of the seats are already held or being bought
+     */
+    public SeatHold hold(Long scheduleId, Collection<Long> seatIds) {
+        SeatHold hold;
+        lock.lock();
+        try {
+            List<Long> taken = seatIds.stream()
+                    .filter(seatId -> holdsBySeat.containsKey(seatId) || seatsBeingBought.contains(seatId))
+                    .toList();
+            if (!taken.isEmpty()) {
+                throw new SeatNotAvailableException(taken);
+            }
+            UUID holdId = UUID.randomUUID();
+            hold = new SeatHold(holdId, scheduleId, List.copyOf(seatIds), Instant.now().plus(ttl));
+            long ticks = (ttl.toNanos() + tickNanos - 1) / tickNanos;
+            holds.put(holdId, new ActiveHold(hold, wheel.schedule(holdId, ticks)));
+            Set<Long> heldSeats = heldSeatsBySchedule.computeIfAbsent(scheduleId, k -> new HashSet<>());
+            for (Long seatId : seatIds) {
+                holdsBySeat.put(seatId, holdId);
+                heldSeats.add(seatId);
+            }
+        } finally {
+            lock.unlock();
+        }
+        eventPublisher.publishEvent(new SeatHoldsChangedEvent(scheduleId, hold.seatIds(), true));
+        return hold;
+    }
+
+    /**
+     * @param holdId - id of the hold
+     * @return - false if there is no such hold
+     */
+    public boolean release(UUID holdId) {
+        SeatHold hold;
+        lock.lock();
+        try {
+            ActiveHold active = holds.get(holdId);
+            if (active == null) {
+                return false;
+            }
+            wheel.cancel(active.timeout());
+            hold = remove(holdId);
+        } finally {
+            lock.unlock();
+        }
+        eventPublisher.publishEvent(new SeatHoldsChangedEvent(hold.scheduleId(), hold.seatIds(), false));
+        return true;
+    }
+
+    /**
+     * Reserves the seats for a purchase, holds of the seats are refused until endPurchase.
+     * The holds are checked and the seats reserved under one lock, so nobody can hold them in between
+     *
+     * @param buyerHolds - ids of the seats being bought with the hold of the buyer, null if the buyer has none
+     * @throws SeatNotAvailableException - when some of the seats are held by another hold or being bought
+     */
+    public void startPurchase(Map<Long, UUID> buyerHolds) {
+        List<Long> taken;
+        lock.lock();
+        try {
+            taken = buyerHolds.entrySet().stream()
+                    .filter(seat -> {
+                        UUID holder = holdsBySeat.get(seat.getKey());
+                        return (holder != null && !holder.equals(seat.getValue())) || seatsBeingBought.contains(seat.getKey());
+                    })
+                    .map(Map.Entry::getKey)
+                    .toList();
+            if (taken.isEmpty()) {
+                seatsBeingBought.addAll(buyerHolds.keySet());
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!taken.isEmpty()) {
+            throw new SeatNotAvailableException(taken);
+        }
+    }
+
+    /**
+     * Ends the reservation of startPurchase, whether the purchase was committed or not
+     *
+     * @param seatIds - ids of the seats that were being bought
+     */
+    public void endPurchase(Collection<Long> seatIds) {
+        lock.lock();
+        try {
+            seatsBeingBought.removeAll(seatIds);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param scheduleId - id of the seance
+     * @return - ids of the held seats of the seance
+     */
+    public Set<Long> getHeldSeats(Long scheduleId) {
+        lock.lock();
+        try {
+            Set<Long> heldSeats = heldSeatsBySchedule.get(scheduleId);
+            return heldSeats == null ? Set.of() : Set.copyOf(heldSeats);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return - number of active holds
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return holds.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the bought seats from their holds, a hold is released once none of its seats is left
+     *
+     * @param event - seats that were bought
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSeatsOccupied(SeatsOccupiedEvent event) {
+        List<SeatHold> released = new ArrayList<>();
+        lock.lock();
+        try {
+            Map<UUID, Set<Long>> boughtByHold = new HashMap<>();
+            for (Long seatId : event.seatIds()) {
+                UUID holdId = holdsBySeat.get(seatId);
+                if (holdId != null) {
+                    boughtByHold.computeIfAbsent(holdId, k -> new HashSet<>()).add(seatId);
+                }
+            }
+            boughtByHold.forEach((holdId, bought) -> released.add(removeSeats(holdId, bought)));
+        } finally {
+            lock.unlock();
+        }
+        for (SeatHold hold : released) {
+            eventPublisher.publishEvent(new SeatHoldsChangedEvent(hold.scheduleId(), hold.seatIds(), false));
+        }
+    }
+
+    /**
+     * Advances the wheel by the ticks that passed since the last run, late runs catch up
+     */
+    void expire() {
+        List<SeatHold> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            long ticks = (now - lastTick) / tickNanos;
+            lastTick += ticks * tickNanos;
+            wheel.advance(ticks, holdId -> expired.add(remove(holdId)));
+        } finally {
+            lock.unlock();
+        }
+        for (SeatHold hold : expired) {
+            eventPublisher.publishEvent(new SeatHoldsChangedEvent(hold.scheduleId(), hold.seatIds(), false));
+        }
+    }
+
+    private SeatHold remove(UUID holdId) {
+        SeatHold hold = holds.remove(holdId).hold();
+        Set<Long> heldSeats = heldSeatsBySchedule.get(hold.scheduleId());
+        for (Long seatId : hold.seatIds()) {
+            holdsBySeat.remove(seatId);
+            heldSeats.remove(seatId);
+        }
+        if (heldSeats.isEmpty()) {
+            heldSeatsBySchedule.remove(hold.scheduleId());
+        }
+        return hold;
+    }
+
+    /**
+     * @param holdId - id of the hold
+     * @param seatIds - seats to be taken out of the hold
+     * @return - the seats that were taken out
+     */
+    private SeatHold removeSeats(UUID holdId, Set<Long> seatIds) {
+        ActiveHold active = holds.get(holdId);
+        SeatHold hold = active.hold();
+        List<Long> remaining = hold.seatIds().stream().filter(seatId -> !seatIds.contains(seatId)).toList();
+        if (remaining.isEmpty()) {
+            wheel.cancel(active.timeout());
+            return remove(holdId);
+        }
+        Set<Long> heldSeats = heldSeatsBySchedule.get(hold.scheduleId());
+        for (Long seatId : seatIds) {
+            holdsBySeat.remove(seatId);
+            heldSeats.remove(seatId);
+        }
+        holds.put(holdId, new ActiveHold(new SeatHold(holdId, hold.scheduleId(), remaining, hold.expiresAt()), active.timeout()));
+        return new SeatHold(holdId, hold.scheduleId(), List.copyOf(seatIds), hold.expiresAt());
+    }
+
+    private record ActiveHold(SeatHold hold, TimingWheel.Timeout<UUID> timeout) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.proovitoo.cinemate.service;
+
+import java.util.List;
+
+/**
+ * Published when seats of a seance are held or released
+ * @param scheduleId - id of the seance
+ * @param seatIds - ids of the seats
+ * @param held - true if the seats were held, false if they were released
+ */
+public record SeatHoldsChangedEvent(Long scheduleId, List<Long> seatIds, boolean held) {
+}
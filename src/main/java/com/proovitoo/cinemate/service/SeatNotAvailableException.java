@@ -0,0 +1,20 @@
+package com.proovitoo.cinemate.service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Thrown when seats that are being bought are already occupied or do not exist
+ */
+public class SeatNotAvailableException extends RuntimeException {
+    private final List<Long> seatIds;
+
+    public SeatNotAvailableException(Collection<Long> seatIds) {
+        super("Seats " + seatIds + " are not available");
+        this.seatIds = List.copyOf(seatIds);
+    }
+
+    public List<Long> getSeatIds() {
+        return seatIds;
+    }
+}
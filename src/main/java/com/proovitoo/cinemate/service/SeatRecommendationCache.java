@@ -0,0 +1,97 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Seat;
+import com.proovitoo.cinemate.entity.SeatMap;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the seats and recommendations of every seance in memory.
+ * Entries are keyed by schedule id and occupancy version, the version is bumped
+ * whenever the occupancy or the holds of the seance change so readers never see stale seats.
+ */
+@Component
+public class SeatRecommendationCache {
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+    private final Map<Long, ScheduleSeats> schedules = new ConcurrentHashMap<>();
+    private final HallLayouts hallLayouts;
+    private final SeatHolds seatHolds;
+
+    public SeatRecommendationCache(HallLayouts hallLayouts, SeatHolds seatHolds) {
+        this.hallLayouts = hallLayouts;
+        this.seatHolds = seatHolds;
+    }
+
+    /**
+     * Returns the seat map with recommended seats for the seance, seats are loaded only when the cached version is outdated
+     *
+     * @param scheduleId      - id of the seance
+     * @param numberOfTickets - number of the tickets being bought
+     * @param alternatives    - how many alternative blocks are wanted besides the recommended one
+     * @param loader          - loads the seats of the seance from the database
+     * @return - seat map of the seance with the recommended block
+     */
+    public SeatMap getSeatMap(Long scheduleId, int numberOfTickets, int alternatives, Supplier<List<Seat>> loader) {
+        return getScheduleSeats(scheduleId, loader).recommend(numberOfTickets, alternatives);
+    }
+
+    /**
+     * Marks the occupancy of the seance changed
+     *
+     * @param scheduleId - id of the seance
+     */
+    public void invalidate(Long scheduleId) {
+        versions.merge(scheduleId, 1L, Long::sum);
+        schedules.remove(scheduleId);
+    }
+
+    /**
+     * Invalidates the seance once the purchase is committed
+     *
+     * @param event - seats that were bought
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSeatsOccupied(SeatsOccupiedEvent event) {
+        invalidate(event.scheduleId());
+    }
+
+    /**
+     * Invalidates the seance when seats are held or released
+     *
+     * @param event - seats that were held or released
+     */
+    @EventListener
+    public void onSeatHoldsChanged(SeatHoldsChangedEvent event) {
+        invalidate(event.scheduleId());
+    }
+
+    /**
+     * @param scheduleId - id of the seance
+     * @return - current occupancy version of the seance
+     */
+    public long getVersion(Long scheduleId) {
+        return versions.getOrDefault(scheduleId, 0L);
+    }
+
+    private ScheduleSeats getScheduleSeats(Long scheduleId, Supplier<List<Seat>> loader) {
+        // The version is read before loading, so seats loaded during a change are never kept as newer
+        long version = getVersion(scheduleId);
+        ScheduleSeats cached = schedules.get(scheduleId);
+        if (cached != null && cached.getVersion() == version) {
+            return cached;
+        }
+        Set<Long> heldSeats = seatHolds.getHeldSeats(scheduleId);
+        List<Seat> seats = loader.get();
+        ScheduleSeats loaded = new ScheduleSeats(scheduleId, version, seats, heldSeats, hallLayouts.forSeats(seats));
+        schedules.merge(scheduleId, loaded,
+                (current, candidate) -> current.getVersion() >= candidate.getVersion() ? current : candidate);
+        return loaded;
+    }
+}
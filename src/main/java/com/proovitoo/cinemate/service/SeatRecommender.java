@@ -0,0 +1,375 @@
+package com.proovitoo.cinemate.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Recommends seats to the middle of the hall using Euclidean distance.
+ * Works directly on the occupancy bitmap with a sliding window over every row and scores
+ * blocks from the score table of the hall layout, so no objects are created while candidates are compared.
+ */
+public final class SeatRecommender {
+    /** A group is split over at most this many adjacent rows */
+    static final int MAX_GROUP_ROWS = 3;
+    /** How many seats the middles of stacked blocks may be shifted from the front block */
+    private static final int MAX_MIDDLE_SHIFT = 1;
+    /** Ranked candidates keep the score in the high bits and the position in the low bits */
+    private static final int POSITION_BITS = 22;
+    private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
+
+    private SeatRecommender() {
+    }
+
+    /**
+     * Finds the best block in a rectangular hall of the grid size
+     *
+     * @param grid            - occupancy of the seance
+     * @param numberOfTickets - number of the tickets being bought
+     * @return - recommended block or null if there is no free block big enough
+     */
+    public static SeatBlock findBestBlock(SeatGrid grid, int numberOfTickets) {
+        return findBestBlock(grid, HallLayout.rectangle(grid.getRows(), grid.getSeatsPerRow()), numberOfTickets);
+    }
+
+    /**
+     * Finds the free block whose middle seat is closest to the center of the hall.
+     * When the distances are the same the block with a smaller row difference wins,
+     * after that the first block (row by row, left to right) is kept.
+     *
+     * @param grid            - occupancy of the seance, same size as the layout
+     * @param layout          - layout of the hall with its score table
+     * @param numberOfTickets - number of the tickets being bought
+     * @return - recommended block or null if there is no free block big enough
+     */
+    public static SeatBlock findBestBlock(SeatGrid grid, HallLayout layout, int numberOfTickets) {
+        int seatsPerRow = grid.getSeatsPerRow();
+        if (numberOfTickets < 1 || numberOfTickets > seatsPerRow) {
+            return null;
+        }
+        int middleOffset = (numberOfTickets - 1) / 2;
+
+        int bestRow = -1;
+        int bestFirstSeat = -1;
+        long bestScore = Long.MAX_VALUE;
+
+        for (int row = 1; row <= grid.getRows(); row++) {
+            if (grid.freeSeatsInRow(row) < numberOfTickets) {
+                continue;
+            }
+            int freeRun = 0;
+            for (int seatNumber = 1; seatNumber <= seatsPerRow; seatNumber++) {
+                freeRun = grid.isFree(row, seatNumber) ? freeRun + 1 : 0;
+                if (freeRun < numberOfTickets) {
+                    continue;
+                }
+                int firstSeat = seatNumber - numberOfTickets + 1;
+                long score = layout.score(row, firstSeat + middleOffset);
+                if (score < bestScore) {
+                    bestScore = score;
+                    bestRow = row;
+                    bestFirstSeat = firstSeat;
+                }
+            }
+        }
+        return bestRow < 0 ? null : new SeatBlock(bestRow, bestFirstSeat, numberOfTickets);
+    }
+
+    /**
+     * Finds the best non-overlapping free blocks in one pass over the hall.
+     * Candidates are kept in a bounded heap of primitive keys (score and position), a block overlaps
+     * at most 2 * numberOfTickets - 2 other candidates, so the best k * (2 * numberOfTickets - 1)
+     * candidates are enough to pick k non-overlapping blocks greedily.
+     *
+     * @param grid            - occupancy of the seance, same size as the layout
+     * @param layout          - layout of the hall with its score table
+     * @param numberOfTickets - number of the tickets being bought
+     * @param count           - how many blocks are wanted
+     * @return - at most count blocks, best first
+     */
+    public static List<SeatBlock> findBestBlocks(SeatGrid grid, HallLayout layout, int numberOfTickets, int count) {
+        int seatsPerRow = grid.getSeatsPerRow();
+        if (numberOfTickets < 1 || numberOfTickets > seatsPerRow || count < 1) {
+            return List.of();
+        }
+        if ((long) grid.getRows() * seatsPerRow > POSITION_MASK) {
+            throw new IllegalArgumentException("Hall is too big for ranking blocks");
+        }
+        int middleOffset = (numberOfTickets - 1) / 2;
+        CandidateHeap candidates = new CandidateHeap(count * (2 * numberOfTickets - 1));
+
+        for (int row = 1; row <= grid.getRows(); row++) {
+            if (grid.freeSeatsInRow(row) < numberOfTickets) {
+                continue;
+            }
+            int freeRun = 0;
+            for (int seatNumber = 1; seatNumber <= seatsPerRow; seatNumber++) {
+                freeRun = grid.isFree(row, seatNumber) ? freeRun + 1 : 0;
+                if (freeRun >= numberOfTickets) {
+                    int firstSeat = seatNumber - numberOfTickets + 1;
+                    long position = (long) (row - 1) * seatsPerRow + firstSeat - 1;
+                    candidates.offer((layout.score(row, firstSeat + middleOffset) << POSITION_BITS) | position);
+                }
+            }
+        }
+
+        long[] ranked = candidates.sorted();
+        List<SeatBlock> blocks = new ArrayList<>(count);
+        for (int i = 0; i < ranked.length && blocks.size() < count; i++) {
+            int position = (int) (ranked[i] & POSITION_MASK);
+            SeatBlock block = new SeatBlock(position / seatsPerRow + 1, position % seatsPerRow + 1, numberOfTickets);
+            if (blocks.stream().noneMatch(chosen -> overlaps(chosen, block))) {
+                blocks.add(block);
+            }
+        }
+        return blocks;
+    }
+
+    private static boolean overlaps(SeatBlock a, SeatBlock b) {
+        return a.row() == b.row() && a.firstSeat() <= b.lastSeat() && b.firstSeat() <= a.lastSeat();
+    }
+
+    /**
+     * Recommends seats for a group. If no row has a free block for the whole group the group is split
+     * into stacked blocks in adjacent rows (e.g. 3+3 front to back) whose middles are at most one seat apart.
+     * Fewer rows are preferred, blocks are scored with the sum of the scores of their middle seats.
+     *
+     * @param grid            - occupancy of the seance, same size as the layout
+     * @param layout          - layout of the hall with its score table
+     * @param numberOfTickets - number of the tickets being bought
+     * @return - recommended blocks from front to back, empty if the group does not fit
+     */
+    public static List<SeatBlock> findBestGroup(SeatGrid grid, HallLayout layout, int numberOfTickets) {
+        SeatBlock block = findBestBlock(grid, layout, numberOfTickets);
+        if (block != null) {
+            return List.of(block);
+        }
+        if (numberOfTickets < 2) {
+            return List.of();
+        }
+        int[] freeRuns = freeRuns(grid);
+        for (int parts = 2; parts <= Math.min(MAX_GROUP_ROWS, numberOfTickets); parts++) {
+            SplitSearch search = new SplitSearch(grid, layout, freeRuns, parts);
+            int[] sizes = splitSizes(numberOfTickets, parts);
+            search.run(sizes);
+            if (sizes[0] != sizes[parts - 1]) {
+                reverse(sizes);
+                search.run(sizes);
+            }
+            if (search.found()) {
+                return search.result();
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * @return - for every position the length of the free run starting there and going right
+     */
+    private static int[] freeRuns(SeatGrid grid) {
+        int seatsPerRow = grid.getSeatsPerRow();
+        int[] runs = new int[grid.getRows() * seatsPerRow];
+        for (int row = 1; row <= grid.getRows(); row++) {
+            int run = 0;
+            for (int seatNumber = seatsPerRow; seatNumber >= 1; seatNumber--) {
+                run = grid.isFree(row, seatNumber) ? run + 1 : 0;
+                runs[(row - 1) * seatsPerRow + seatNumber - 1] = run;
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Splits the group as evenly as possible, bigger parts first (7 in 2 parts is 4+3)
+     */
+    private static int[] splitSizes(int numberOfTickets, int parts) {
+        int[] sizes = new int[parts];
+        for (int i = 0; i < parts; i++) {
+            sizes[i] = numberOfTickets / parts + (i < numberOfTickets % parts ? 1 : 0);
+        }
+        return sizes;
+    }
+
+    private static void reverse(int[] values) {
+        for (int i = 0, j = values.length - 1; i < j; i++, j--) {
+            int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+
+    /**
+     * Branch and bound search of stacked blocks.
+     * Row windows are visited by the lower bound of their score (the best position of every row),
+     * the search stops once no remaining window can beat the best group found.
+     */
+    private static final class SplitSearch {
+        private final SeatGrid grid;
+        private final HallLayout layout;
+        private final int[] freeRuns;
+        private final int parts;
+        private final int[] starts;
+        private long bestScore = Long.MAX_VALUE;
+        private int bestRow = -1;
+        private int[] bestStarts;
+        private int[] bestSizes;
+
+        SplitSearch(SeatGrid grid, HallLayout layout, int[] freeRuns, int parts) {
+            this.grid = grid;
+            this.layout = layout;
+            this.freeRuns = freeRuns;
+            this.parts = parts;
+            this.starts = new int[parts];
+        }
+
+        void run(int[] sizes) {
+            int windows = grid.getRows() - parts + 1;
+            for (int size : sizes) {
+                if (size > grid.getSeatsPerRow()) {
+                    return;
+                }
+            }
+            if (windows < 1) {
+                return;
+            }
+            // Lower bound in the high bits and the first row in the low bits, so sorting orders windows by bound
+            long[] order = new long[windows];
+            for (int firstRow = 1; firstRow <= windows; firstRow++) {
+                order[firstRow - 1] = (lowerBound(firstRow, 0) << 20) | firstRow;
+            }
+            Arrays.sort(order);
+            for (long window : order) {
+                if ((window >>> 20) >= bestScore) {
+                    break;
+                }
+                searchWindow((int) (window & 0xFFFFF), sizes);
+            }
+        }
+
+        private void searchWindow(int firstRow, int[] sizes) {
+            int seatsPerRow = grid.getSeatsPerRow();
+            long restBound = lowerBound(firstRow, 1);
+            for (int firstSeat = 1; firstSeat + sizes[0] - 1 <= seatsPerRow; firstSeat++) {
+                if (freeRuns[(firstRow - 1) * seatsPerRow + firstSeat - 1] < sizes[0]) {
+                    continue;
+                }
+                int middle = firstSeat + (sizes[0] - 1) / 2;
+                long score = layout.score(firstRow, middle);
+                if (score + restBound >= bestScore) {
+                    continue;
+                }
+                starts[0] = firstSeat;
+                for (int part = 1; part < parts && score < bestScore; part++) {
+                    long partScore = bestStackedBlock(firstRow + part, sizes[part], middle, part);
+                    score = partScore == Long.MAX_VALUE ? Long.MAX_VALUE : score + partScore;
+                }
+                if (score < bestScore) {
+                    bestScore = score;
+                    bestRow = firstRow;
+                    bestStarts = starts.clone();
+                    bestSizes = sizes.clone();
+                }
+            }
+        }
+
+        /**
+         * Finds the best free block of the row whose middle is near the middle of the front block
+         * and stores its first seat in starts[part]
+         */
+        private long bestStackedBlock(int row, int size, int frontMiddle, int part) {
+            int seatsPerRow = grid.getSeatsPerRow();
+            long best = Long.MAX_VALUE;
+            for (int middle = frontMiddle - MAX_MIDDLE_SHIFT; middle <= frontMiddle + MAX_MIDDLE_SHIFT; middle++) {
+                int firstSeat = middle - (size - 1) / 2;
+                if (firstSeat < 1 || firstSeat + size - 1 > seatsPerRow
+                        || freeRuns[(row - 1) * seatsPerRow + firstSeat - 1] < size) {
+                    continue;
+                }
+                long score = layout.score(row, middle);
+                if (score < best) {
+                    best = score;
+                    starts[part] = firstSeat;
+                }
+            }
+            return best;
+        }
+
+        private long lowerBound(int firstRow, int fromPart) {
+            long bound = 0;
+            for (int part = fromPart; part < parts; part++) {
+                bound += layout.bestScoreInRow(firstRow + part);
+            }
+            return bound;
+        }
+
+        boolean found() {
+            return bestRow > 0;
+        }
+
+        List<SeatBlock> result() {
+            List<SeatBlock> blocks = new ArrayList<>(parts);
+            for (int part = 0; part < parts; part++) {
+                blocks.add(new SeatBlock(bestRow + part, bestStarts[part], bestSizes[part]));
+            }
+            return blocks;
+        }
+    }
+
+    /**
+     * Max-heap that keeps the smallest keys offered to it
+     */
+    private static final class CandidateHeap {
+        private final long[] keys;
+        private int size;
+
+        CandidateHeap(int capacity) {
+            this.keys = new long[capacity];
+        }
+
+        void offer(long key) {
+            if (size < keys.length) {
+                keys[size] = key;
+                siftUp(size++);
+            } else if (key < keys[0]) {
+                keys[0] = key;
+                siftDown(0);
+            }
+        }
+
+        long[] sorted() {
+            long[] sorted = Arrays.copyOf(keys, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        private void siftUp(int index) {
+            long key = keys[index];
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (keys[parent] >= key) {
+                    break;
+                }
+                keys[index] = keys[parent];
+                index = parent;
+            }
+            keys[index] = key;
+        }
+
+        private void siftDown(int index) {
+            long key = keys[index];
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                if (child + 1 < size && keys[child + 1] > keys[child]) {
+                    child++;
+                }
+                if (key >= keys[child]) {
+                    break;
+                }
+                keys[index] = keys[child];
+                index = child;
+            }
+            keys[index] = key;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.proovitoo.cinemate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proovitoo.cinemate.entity.SeatUpdate;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pushes seat changes of a seance to its Server-Sent Events subscribers.
+ * Every seance with subscribers has one channel. Changes are collected in the channel and flushed once per
+ * coalescing window, the update is serialized once and the same text is sent to every subscriber.
+ * Purchases are pushed only after they are committed.
+ */
+@Component
+public class SeatUpdatePublisher {
+    public static final String UPDATE_EVENT = "seats";
+    public static final String VERSION_EVENT = "version";
+
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "seat-updates");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final SeatRecommendationCache recommendationCache;
+    private final ObjectMapper objectMapper;
+    private final long windowMillis;
+    private final long timeoutMillis;
+
+    public SeatUpdatePublisher(SeatRecommendationCache recommendationCache, ObjectMapper objectMapper,
+                               @Value("${cinemate.seats.stream-window:100ms}") Duration window,
+                               @Value("${cinemate.seats.stream-timeout:30m}") Duration timeout) {
+        this.recommendationCache = recommendationCache;
+        this.objectMapper = objectMapper;
+        this.windowMillis = window.toMillis();
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    /**
+     * Subscribes to the seat changes of a seance.
+     * The current occupancy version is sent first, a client whose seat map has another version reloads it once
+     *
+     * @param scheduleId - id of the seance
+     * @return - emitter of the subscriber
+     */
+    public SseEmitter subscribe(Long scheduleId) {
+        return subscribe(scheduleId, new SseEmitter(timeoutMillis));
+    }
+
+    /**
+     * @param scheduleId - id of the seance
+     * @param emitter    - emitter of the new subscriber
+     * @return - the same emitter
+     */
+    SseEmitter subscribe(Long scheduleId, SseEmitter emitter) {
+        Channel channel = channels.compute(scheduleId, (id, current) -> {
+            Channel result = current != null ? current : new Channel(id);
+            result.emitters.add(emitter);
+            return result;
+        });
+        Runnable unsubscribe = () -> unsubscribe(channel, emitter);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        try {
+            emitter.send(SseEmitter.event().name(VERSION_EVENT).data(recommendationCache.getVersion(scheduleId)));
+        } catch (IOException e) {
+            unsubscribe.run();
+        }
+        return emitter;
+    }
+
+    /**
+     * @param event - seats that were bought, after the purchase is committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSeatsOccupied(SeatsOccupiedEvent event) {
+        Channel channel = channels.get(event.scheduleId());
+        if (channel != null) {
+            channel.occupied(event.seatIds());
+        }
+    }
+
+    /**
+     * @param event - seats that were held or released
+     */
+    @EventListener
+    public void onSeatHoldsChanged(SeatHoldsChangedEvent event) {
+        Channel channel = channels.get(event.scheduleId());
+        if (channel != null) {
+            channel.holdsChanged(event.seatIds(), event.held());
+        }
+    }
+
+    /**
+     * @param scheduleId - id of the seance
+     * @return - number of subscribers of the seance
+     */
+    public int subscribers(Long scheduleId) {
+        Channel channel = channels.get(scheduleId);
+        return channel == null ? 0 : channel.emitters.size();
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdownNow();
+        channels.values().forEach(channel -> channel.emitters.forEach(SseEmitter::complete));
+        channels.clear();
+    }
+
+    private void unsubscribe(Channel channel, SseEmitter emitter) {
+        channel.emitters.remove(emitter);
+        channels.computeIfPresent(channel.scheduleId, (id, current) -> current.emitters.isEmpty() ? null : current);
+    }
+
+    /**
+     * Subscribers and pending changes of one seance
+     */
+    private final class Channel {
+        private final Long scheduleId;
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        private final Set<Long> occupied = new LinkedHashSet<>();
+        private final Set<Long> held = new LinkedHashSet<>();
+        private final Set<Long> released = new LinkedHashSet<>();
+        private final Lock lock = new ReentrantLock();
+        private boolean flushScheduled;
+
+        private Channel(Long scheduleId) {
+            this.scheduleId = scheduleId;
+        }
+
+        void occupied(List<Long> seatIds) {
+            lock.lock();
+            try {
+                for (Long seatId : seatIds) {
+                    occupied.add(seatId);
+                    held.remove(seatId);
+                    released.remove(seatId);
+                }
+                scheduleFlush();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void holdsChanged(List<Long> seatIds, boolean isHeld) {
+            lock.lock();
+            try {
+                for (Long seatId : seatIds) {
+                    if (occupied.contains(seatId)) {
+                        continue;
+                    }
+                    (isHeld ? held : released).add(seatId);
+                    (isHeld ? released : held).remove(seatId);
+                }
+                scheduleFlush();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void scheduleFlush() {
+            if (!flushScheduled) {
+                flushScheduled = true;
+                flusher.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void flush() {
+            SeatUpdate update;
+            lock.lock();
+            try {
+                update = new SeatUpdate(scheduleId, recommendationCache.getVersion(scheduleId),
+                        new ArrayList<>(occupied), new ArrayList<>(held), new ArrayList<>(released));
+                occupied.clear();
+                held.clear();
+                released.clear();
+                flushScheduled = false;
+            } finally {
+                lock.unlock();
+            }
+            String data;
+            try {
+                data = objectMapper.writeValueAsString(update);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Could not serialize the seat update", e);
+            }
+            for (SseEmitter emitter : emitters) {
+                try {
+                    emitter.send(SseEmitter.event().name(UPDATE_EVENT).data(data, MediaType.APPLICATION_JSON));
+                } catch (IOException | IllegalStateException e) {
+                    // The subscriber is gone, the emitter callbacks remove it
+                    emitter.completeWithError(e);
+                }
+            }
+        }
+    }
+}
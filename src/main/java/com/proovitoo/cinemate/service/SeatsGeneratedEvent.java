@@ -0,0 +1,13 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Schedule;
+
+import java.util.List;
+
+/**
+ * Published when the seats of new seances have been created
+ * @param schedules - the seances
+ * @param seatsPerSchedule - number of seats every seance got
+ */
+public record SeatsGeneratedEvent(List<Schedule> schedules, int seatsPerSchedule) {
+}
@@ -0,0 +1,11 @@
+package com.proovitoo.cinemate.service;
+
+import java.util.List;
+
+/**
+ * Published when seats of a seance have been bought
+ * @param scheduleId - id of the seance
+ * @param seatIds - ids of the occupied seats
+ */
+public record SeatsOccupiedEvent(Long scheduleId, List<Long> seatIds) {
+}
@@ -0,0 +1,127 @@
+package com.proovitoo.cinemate.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel.
+ * Every bucket holds a doubly linked list of timeouts, a timeout is put into the bucket of the tick it
+ * expires on and counts down the full turns of the wheel it has to wait. Scheduling and cancelling are O(1),
+ * a tick only visits the timeouts of one bucket.
+ * The wheel is not thread safe, the owner has to guard it.
+ *
+ * @param <T> - value that expires
+ */
+final class TimingWheel<T> {
+    private final Timeout<T>[] buckets;
+    private final int mask;
+    private long tick;
+    private int size;
+
+    /**
+     * @param wheelSize - number of buckets, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    TimingWheel(int wheelSize) {
+        int buckets = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.buckets = new Timeout[buckets];
+        this.mask = buckets - 1;
+    }
+
+    /**
+     * @param value - value that expires
+     * @param ticks - number of ticks until the value expires, at least one
+     * @return - timeout that can be cancelled
+     */
+    Timeout<T> schedule(T value, long ticks) {
+        long delay = Math.max(1, ticks);
+        Timeout<T> timeout = new Timeout<>(value);
+        timeout.rounds = (delay - 1) / buckets.length;
+        timeout.bucket = (int) ((tick + delay) & mask);
+        Timeout<T> head = buckets[timeout.bucket];
+        timeout.next = head;
+        if (head != null) {
+            head.previous = timeout;
+        }
+        buckets[timeout.bucket] = timeout;
+        timeout.scheduled = true;
+        size++;
+        return timeout;
+    }
+
+    /**
+     * @param timeout - timeout that should not expire any more
+     * @return - false if it already expired or was cancelled
+     */
+    boolean cancel(Timeout<T> timeout) {
+        if (!timeout.scheduled) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+
+    /**
+     * Moves the wheel forward, expired values are handed to the consumer in the order of their ticks
+     *
+     * @param ticks   - number of ticks that passed
+     * @param expired - receives the expired values
+     */
+    void advance(long ticks, Consumer<T> expired) {
+        for (long i = 0; i < ticks; i++) {
+            tick++;
+            Timeout<T> timeout = buckets[(int) (tick & mask)];
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                if (timeout.rounds == 0) {
+                    unlink(timeout);
+                    expired.accept(timeout.value);
+                } else {
+                    timeout.rounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    /**
+     * @return - number of scheduled timeouts
+     */
+    int size() {
+        return size;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.scheduled = false;
+        size--;
+    }
+
+    /**
+     * Entry of a bucket
+     */
+    static final class Timeout<T> {
+        private final T value;
+        private long rounds;
+        private int bucket;
+        private boolean scheduled;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+
+        private Timeout(T value) {
+            this.value = value;
+        }
+
+        T getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.proovitoo.cinemate.service;
+
+/**
+ * Bounded min-heap of the best scored ordinals, the worst kept ordinal is at the root.
+ * Scores and ordinals are kept in parallel arrays so offering a candidate creates no objects.
+ * Ties go to the lower ordinal, the item indexed first, so the result does not depend on the order of the offers.
+ */
+final class TopOrdinals {
+    private final double[] scores;
+    private final int[] heap;
+    private int size;
+
+    /**
+     * @param limit - how many ordinals are kept
+     */
+    TopOrdinals(int limit) {
+        this.scores = new double[limit];
+        this.heap = new int[limit];
+    }
+
+    void offer(double score, int ordinal) {
+        if (size < heap.length) {
+            scores[size] = score;
+            heap[size] = ordinal;
+            siftUp(size++);
+        } else if (size > 0 && (score > scores[0] || score == scores[0] && ordinal < heap[0])) {
+            scores[0] = score;
+            heap[0] = ordinal;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Empties the heap
+     *
+     * @return - the kept ordinals, the best first
+     */
+    int[] ordinals() {
+        int[] result = new int[size];
+        while (size > 0) {
+            result[size - 1] = heap[0];
+            size--;
+            scores[0] = scores[size];
+            heap[0] = heap[size];
+            siftDown(0);
+        }
+        return result;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!less(index, parent)) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int smallest = index;
+            for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                if (less(child, smallest)) {
+                    smallest = child;
+                }
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private boolean less(int a, int b) {
+        return scores[a] < scores[b] || scores[a] == scores[b] && heap[a] > heap[b];
+    }
+
+    private void swap(int a, int b) {
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+        int ordinal = heap[a];
+        heap[a] = heap[b];
+        heap[b] = ordinal;
+    }
+}
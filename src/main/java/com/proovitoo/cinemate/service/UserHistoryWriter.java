@@ -0,0 +1,195 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.UserHistory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind pipeline for user history.
+ * Requests only put the history into a bounded queue, one writer thread inserts it with JDBC batches
+ * as soon as a batch is full or the oldest queued history has waited for the flush interval.
+ * When the queue is full the history is refused instead of slowing down the caller,
+ * on shutdown everything that is queued is written before the thread stops.
+ * A batch the database rejects is written again one history at a time, so only the rejected ones are lost.
+ * Every written batch is published as UserHistoryWrittenEvent.
+ */
+@Component
+public class UserHistoryWriter {
+    private static final Logger log = LoggerFactory.getLogger(UserHistoryWriter.class);
+    private static final String INSERT_USER_HISTORY = "INSERT INTO user_history (user_id, schedule_id) VALUES (?, ?)";
+    public static final long NO_SCHEDULE = -1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BlockingQueue<UserHistoryWrittenEvent.Entry> queue;
+    private final int batchSize;
+    private final long flushNanos;
+    private final Thread writer;
+    // Offers share the read lock, stopping takes the write lock so nothing is queued after the final drain
+    private final ReadWriteLock stopLock = new ReentrantReadWriteLock();
+    private volatile boolean running = true;
+
+    public UserHistoryWriter(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher,
+                             @Value("${cinemate.history.queue-capacity:10000}") int queueCapacity,
+                             @Value("${cinemate.history.batch-size:500}") int batchSize,
+                             @Value("${cinemate.history.flush-interval:1s}") Duration flushInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushNanos = flushInterval.toNanos();
+        this.writer = new Thread(this::run, "user-history-writer");
+    }
+
+    @PostConstruct
+    public void start() {
+        writer.start();
+    }
+
+    /**
+     * Stops taking history and waits until the queue is written
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        close();
+        writer.join(TimeUnit.NANOSECONDS.toMillis(flushNanos) + 10_000);
+    }
+
+    /**
+     * Queues the history for writing
+     *
+     * @param userHistory - the collected data which is being saved
+     * @return - false if the queue is full or the writer is stopped
+     */
+    public boolean offer(UserHistory userHistory) {
+        Long scheduleId = userHistory.getSchedule() != null ? userHistory.getSchedule().getId() : null;
+        UserHistoryWrittenEvent.Entry entry = new UserHistoryWrittenEvent.Entry(userHistory.getUserId(),
+                scheduleId != null ? scheduleId : NO_SCHEDULE);
+        stopLock.readLock().lock();
+        try {
+            return running && queue.offer(entry);
+        } finally {
+            stopLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return - number of histories waiting to be written
+     */
+    public int pending() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<UserHistoryWrittenEvent.Entry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                fill(batch);
+            } catch (InterruptedException e) {
+                // Stop waiting, what is queued is still written by the next rounds
+                close();
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Waits for the first history, then collects more until the batch is full or the flush interval has passed
+     */
+    private void fill(List<UserHistoryWrittenEvent.Entry> batch) throws InterruptedException {
+        UserHistoryWrittenEvent.Entry first = running ? queue.poll(flushNanos, TimeUnit.NANOSECONDS) : queue.poll();
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushNanos;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                return;
+            }
+            UserHistoryWrittenEvent.Entry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void close() {
+        stopLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            stopLock.writeLock().unlock();
+        }
+    }
+
+    private void write(List<UserHistoryWrittenEvent.Entry> batch) {
+        List<UserHistoryWrittenEvent.Entry> written = batch;
+        try {
+            jdbcTemplate.batchUpdate(INSERT_USER_HISTORY, batch, batch.size(), (ps, entry) -> {
+                ps.setString(1, entry.userId());
+                if (entry.scheduleId() == NO_SCHEDULE) {
+                    ps.setNull(2, Types.BIGINT);
+                } else {
+                    ps.setLong(2, entry.scheduleId());
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // One history that can not be written, e.g. of a deleted seance, must not drop the rest of the batch
+            written = writeOneByOne(batch);
+        } catch (DataAccessException e) {
+            // History is analytics only, a failed batch is dropped so the queue keeps moving
+            log.warn("Could not write {} user histories", batch.size(), e);
+            return;
+        }
+        try {
+            eventPublisher.publishEvent(new UserHistoryWrittenEvent(List.copyOf(written)));
+        } catch (RuntimeException e) {
+            // A failing listener must not stop the only writer thread, the history itself is already written
+            log.warn("Listener of {} written user histories failed", written.size(), e);
+        }
+    }
+
+    /**
+     * Writes the entries of a rejected batch separately and skips the ones that are rejected again
+     *
+     * @return - written entries
+     */
+    private List<UserHistoryWrittenEvent.Entry> writeOneByOne(List<UserHistoryWrittenEvent.Entry> batch) {
+        List<UserHistoryWrittenEvent.Entry> written = new ArrayList<>(batch.size());
+        for (UserHistoryWrittenEvent.Entry entry : batch) {
+            try {
+                jdbcTemplate.update(INSERT_USER_HISTORY, entry.userId(),
+                        entry.scheduleId() == NO_SCHEDULE ? null : entry.scheduleId());
+                written.add(entry);
+            } catch (DataAccessException e) {
+                log.warn("Could not write user history of schedule {}: {}", entry.scheduleId(), e.getMessage());
+            }
+        }
+        return written;
+    }
+}
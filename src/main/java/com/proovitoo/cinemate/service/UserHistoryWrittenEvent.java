@@ -0,0 +1,18 @@
+package com.proovitoo.cinemate.service;
+
+import java.util.List;
+
+/**
+ * Published by UserHistoryWriter after a batch of history is inserted
+ *
+ * @param entries - written history, in the order it was taken
+ */
+public record UserHistoryWrittenEvent(List<Entry> entries) {
+
+    /**
+     * @param userId     - anonymous id of the user, may be null
+     * @param scheduleId - id of the seance, UserHistoryWriter.NO_SCHEDULE if there is none
+     */
+    public record Entry(String userId, long scheduleId) {
+    }
+}
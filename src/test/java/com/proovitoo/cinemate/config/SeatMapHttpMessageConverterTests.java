@@ -0,0 +1,122 @@
+package com.proovitoo.cinemate.config;
+
+import com.proovitoo.cinemate.entity.SeatMap;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatMapHttpMessageConverterTests {
+    private final SeatMapHttpMessageConverter converter = new SeatMapHttpMessageConverter();
+
+    @Test
+    void seatMapIsReadBackAsItWasWritten() throws IOException {
+        SeatMap seatMap = new SeatMap(7L, 3, 3, 4,
+                new byte[]{(byte) 0xFF, 0x0E}, new byte[]{0x03, 0x00}, new byte[]{0x00, 0x08},
+                new long[]{100, 8, 5000, 3},
+                List.of(new SeatMap.Block(2, 1, 4)),
+                List.of(List.of(new SeatMap.Block(1, 1, 2), new SeatMap.Block(3, 2, 2)), List.of(new SeatMap.Block(3, 1, 1))));
+
+        SeatMap read = read(write(seatMap));
+
+        assertEquals(seatMap.scheduleId(), read.scheduleId());
+        assertEquals(seatMap.version(), read.version());
+        assertEquals(seatMap.rows(), read.rows());
+        assertEquals(seatMap.seatsPerRow(), read.seatsPerRow());
+        assertArrayEquals(seatMap.seats(), read.seats());
+        assertArrayEquals(seatMap.occupied(), read.occupied());
+        assertArrayEquals(seatMap.held(), read.held());
+        assertArrayEquals(seatMap.seatIds(), read.seatIds());
+        assertEquals(seatMap.recommended(), read.recommended());
+        assertEquals(seatMap.alternatives(), read.alternatives());
+    }
+
+    @Test
+    void largestValuesOfTheFieldsAreWrittenUnsigned() throws IOException {
+        SeatMap seatMap = new SeatMap(Long.MAX_VALUE, Long.MAX_VALUE, 0xFFFF, 0xFFFF,
+                new byte[0], new byte[0], new byte[0], new long[]{Long.MAX_VALUE, Integer.MAX_VALUE},
+                Collections.nCopies(255, new SeatMap.Block(0xFFFF, 0xFFFF, 0xFFFF)), Collections.nCopies(255, List.of()));
+
+        SeatMap read = read(write(seatMap));
+
+        assertEquals(0xFFFF, read.rows());
+        assertEquals(0xFFFF, read.seatsPerRow());
+        assertArrayEquals(seatMap.seatIds(), read.seatIds());
+        assertEquals(seatMap.recommended(), read.recommended());
+        assertEquals(seatMap.alternatives(), read.alternatives());
+    }
+
+    @Test
+    void seatMapThatDoesNotFitTheFormatIsRefused() {
+        assertRefused(seatMap(0x10000, 1, new long[0], List.of(), List.of()));
+        assertRefused(seatMap(1, 0x10000, new long[0], List.of(), List.of()));
+        assertRefused(seatMap(1, 1, new long[]{1, 1L + Integer.MAX_VALUE}, List.of(), List.of()));
+        assertRefused(seatMap(1, 1, new long[0x10000 * 2], List.of(), List.of()));
+        assertRefused(seatMap(1, 1, new long[0], Collections.nCopies(256, new SeatMap.Block(1, 1, 1)), List.of()));
+        assertRefused(seatMap(1, 1, new long[0], List.of(new SeatMap.Block(0x10000, 1, 1)), List.of()));
+        assertRefused(seatMap(1, 1, new long[0], List.of(), Collections.nCopies(256, List.of())));
+    }
+
+    private void assertRefused(SeatMap seatMap) {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        assertThrows(HttpMessageNotWritableException.class,
+                () -> converter.write(seatMap, SeatMapHttpMessageConverter.MEDIA_TYPE, message));
+        assertEquals(0, message.getBodyAsBytes().length);
+    }
+
+    private static SeatMap seatMap(int rows, int seatsPerRow, long[] seatIds, List<SeatMap.Block> recommended,
+                                   List<List<SeatMap.Block>> alternatives) {
+        return new SeatMap(1L, 0, rows, seatsPerRow, new byte[1], new byte[1], new byte[1], seatIds,
+                recommended, alternatives);
+    }
+
+    private byte[] write(SeatMap seatMap) throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(seatMap, SeatMapHttpMessageConverter.MEDIA_TYPE, message);
+        return message.getBodyAsBytes();
+    }
+
+    /**
+     * Decodes the format the way a client does
+     */
+    private static SeatMap read(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        assertEquals(3, in.readUnsignedByte());
+        long scheduleId = in.readLong();
+        long version = in.readLong();
+        int rows = in.readUnsignedShort();
+        int seatsPerRow = in.readUnsignedShort();
+        int bitmapLength = in.readInt();
+        byte[] seats = in.readNBytes(bitmapLength);
+        byte[] occupied = in.readNBytes(bitmapLength);
+        byte[] held = in.readNBytes(bitmapLength);
+        long[] seatIds = new long[in.readUnsignedShort() * 2];
+        for (int i = 0; i < seatIds.length; i += 2) {
+            seatIds[i] = in.readLong();
+            seatIds[i + 1] = in.readInt();
+        }
+        List<SeatMap.Block> recommended = readBlocks(in);
+        List<List<SeatMap.Block>> alternatives = new ArrayList<>();
+        for (int i = in.readUnsignedByte(); i > 0; i--) {
+            alternatives.add(readBlocks(in));
+        }
+        assertEquals(-1, in.read(), "Bytes left after the seat map");
+        return new SeatMap(scheduleId, version, rows, seatsPerRow, seats, occupied, held, seatIds, recommended, alternatives);
+    }
+
+    private static List<SeatMap.Block> readBlocks(DataInputStream in) throws IOException {
+        List<SeatMap.Block> blocks = new ArrayList<>();
+        for (int i = in.readUnsignedByte(); i > 0; i--) {
+            blocks.add(new SeatMap.Block(in.readUnsignedShort(), in.readUnsignedShort(), in.readUnsignedShort()));
+        }
+        return blocks;
+    }
+}
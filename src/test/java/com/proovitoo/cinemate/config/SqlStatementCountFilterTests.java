@@ -0,0 +1,75 @@
+package com.proovitoo.cinemate.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SqlStatementCountFilterTests {
+    private final SqlStatementCounter counter = new SqlStatementCounter();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SqlStatementCountFilter filter = new SqlStatementCountFilter(counter, meterRegistry);
+
+    @Test
+    void statementsAreRecordedByTheUriPattern() throws Exception {
+        filter.doFilter(new MockHttpServletRequest("GET", "/cinemate/movies/1"), new MockHttpServletResponse(),
+                runStatements(2, "/cinemate/movies/{id}"));
+        filter.doFilter(new MockHttpServletRequest("GET", "/cinemate/movies/2"), new MockHttpServletResponse(),
+                runStatements(1, "/cinemate/movies/{id}"));
+        filter.doFilter(new MockHttpServletRequest("POST", "/cinemate/checkout"), new MockHttpServletResponse(),
+                runStatements(4, "/cinemate/checkout"));
+
+        DistributionSummary movie = summary("GET", "/cinemate/movies/{id}");
+        assertEquals(2, movie.count());
+        assertEquals(3, movie.totalAmount());
+        assertEquals(4, summary("POST", "/cinemate/checkout").totalAmount());
+    }
+
+    @Test
+    void statementsBeforeTheRequestAreNotRecorded() throws Exception {
+        counter.start();
+        counter.increment();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/cinemate/genres"), new MockHttpServletResponse(),
+                runStatements(1, "/cinemate/genres"));
+
+        assertEquals(1, summary("GET", "/cinemate/genres").totalAmount());
+    }
+
+    @Test
+    void failedRequestIsRecordedAndCountingStops() {
+        FilterChain failing = (request, response) -> {
+            counter.increment();
+            throw new IllegalStateException("Request failed");
+        };
+
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(
+                new MockHttpServletRequest("GET", "/cinemate/unknown"), new MockHttpServletResponse(), failing));
+
+        DistributionSummary unknown = summary("GET", "UNKNOWN");
+        assertEquals(1, unknown.count());
+        assertEquals(1, unknown.totalAmount());
+        counter.increment();
+        assertEquals(0, counter.stop());
+    }
+
+    private FilterChain runStatements(int statements, String pattern) {
+        return (request, response) -> {
+            for (int i = 0; i < statements; i++) {
+                counter.increment();
+            }
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+        };
+    }
+
+    private DistributionSummary summary(String method, String uri) {
+        return meterRegistry.get("cinemate.http.sql.statements").tag("method", method).tag("uri", uri).summary();
+    }
+}
@@ -0,0 +1,66 @@
+package com.proovitoo.cinemate.config;
+
+import com.proovitoo.cinemate.repository.GenreRepository;
+import com.proovitoo.cinemate.service.OmdbService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class SqlStatementCounterTests {
+    private static final String TOUCH_GENRE = "UPDATE genres SET name = name WHERE id = ";
+
+    @MockBean
+    private OmdbService omdbService;
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Test
+    void jdbcTemplateStatementsAreCounted() {
+        sqlStatementCounter.start();
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM genres", Long.class);
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM genres WHERE id > ?", Long.class, 0L);
+        // One prepared statement for the whole batch, a plain batch counts every statement
+        jdbcTemplate.batchUpdate(TOUCH_GENRE + "?", List.of(new Object[]{-1L}, new Object[]{-2L}, new Object[]{-3L}));
+        jdbcTemplate.batchUpdate(TOUCH_GENRE + "-1", TOUCH_GENRE + "-2");
+
+        assertEquals(5, sqlStatementCounter.stop());
+    }
+
+    @Test
+    void hibernateStatementsAreCounted() {
+        sqlStatementCounter.start();
+        genreRepository.count();
+        genreRepository.existsById(-1L);
+
+        assertEquals(2, sqlStatementCounter.stop());
+    }
+
+    @Test
+    void statementsOfOtherThreadsAreNotCounted() throws InterruptedException {
+        sqlStatementCounter.start();
+        Thread thread = new Thread(() -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM genres", Long.class));
+        thread.start();
+        thread.join();
+
+        assertEquals(0, sqlStatementCounter.stop());
+    }
+
+    @Test
+    void nothingIsCountedWhenCountingIsOff() {
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM genres", Long.class);
+        sqlStatementCounter.increment();
+
+        assertEquals(0, sqlStatementCounter.stop());
+    }
+}
@@ -0,0 +1,70 @@
+package com.proovitoo.cinemate.controller;
+
+import com.proovitoo.cinemate.entity.Movie;
+import com.proovitoo.cinemate.repository.MovieRepository;
+import com.proovitoo.cinemate.service.MovieSavedEvent;
+import com.proovitoo.cinemate.service.OmdbService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class CatalogEndpointTests {
+    @MockBean
+    private OmdbService omdbService;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MovieRepository movieRepository;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void moviesKeepTheirETagBetweenRequests() throws Exception {
+        MvcResult first = mockMvc.perform(get("/cinemate/movies")).andExpect(status().isOk()).andReturn();
+        MvcResult second = mockMvc.perform(get("/cinemate/movies")).andExpect(status().isOk()).andReturn();
+
+        String eTag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+        assertEquals(eTag, second.getResponse().getHeader(HttpHeaders.ETAG));
+        assertArrayEquals(first.getResponse().getContentAsByteArray(), second.getResponse().getContentAsByteArray());
+    }
+
+    @Test
+    void matchingIfNoneMatchIsAnsweredNotModified() throws Exception {
+        String eTag = mockMvc.perform(get("/cinemate/movies")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        MvcResult result = mockMvc.perform(get("/cinemate/movies").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andReturn();
+        assertEquals(0, result.getResponse().getContentAsByteArray().length);
+        assertEquals(eTag, result.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void savedMovieRebuildsTheMovies() throws Exception {
+        String eTag = mockMvc.perform(get("/cinemate/movies")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        Movie movie = new Movie();
+        movie.setMovieName("Movie saved after the first request");
+        movieRepository.save(movie);
+        eventPublisher.publishEvent(new MovieSavedEvent(movie));
+
+        MvcResult result = mockMvc.perform(get("/cinemate/movies").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertNotEquals(eTag, result.getResponse().getHeader(HttpHeaders.ETAG));
+        assertTrue(result.getResponse().getContentAsString().contains("Movie saved after the first request"));
+    }
+}
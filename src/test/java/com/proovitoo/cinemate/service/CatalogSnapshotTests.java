@@ -0,0 +1,168 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.config.DataInitializer;
+import com.proovitoo.cinemate.entity.Genre;
+import com.proovitoo.cinemate.entity.Hall;
+import com.proovitoo.cinemate.entity.Movie;
+import com.proovitoo.cinemate.entity.Schedule;
+import com.proovitoo.cinemate.repository.GenreRepository;
+import com.proovitoo.cinemate.repository.MovieRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"cinemate.data.initialize=false", "spring.datasource.url=jdbc:h2:mem:catalog-snapshot"})
+class CatalogSnapshotTests {
+    private static final Path SNAPSHOT =
+            Path.of(System.getProperty("java.io.tmpdir"), "cinemate-" + UUID.randomUUID(), "catalog.snapshot");
+    private static final List<String> TABLES = List.of("seat", "schedule", "movie_genre", "movies", "halls", "genres");
+
+    @MockBean
+    private OmdbService omdbService;
+    @Autowired
+    private CatalogSnapshot catalogSnapshot;
+    @Autowired
+    private DataInitializer dataInitializer;
+    @Autowired
+    private GenreRepository genreRepository;
+    @Autowired
+    private MovieRepository movieRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void snapshotPath(DynamicPropertyRegistry registry) {
+        registry.add("cinemate.snapshot.path", SNAPSHOT::toString);
+    }
+
+    @Test
+    void restoredDatabaseHasTheSavedRowsAndTakesNewEntities() {
+        Genre drama = genre("Drama");
+        Genre comedy = genre("Comedy");
+        Movie first = movie("First", Set.of(drama, comedy));
+        Movie second = movie("Second", Set.of(drama));
+        Hall hall = dataInitializer.createHall("Snapshot hall", HallLayout.parse("SSS_SS/SSS_SS/.SS_SS", null, null));
+        dataInitializer.createSchedules(schedules(first, second), hall);
+        jdbcTemplate.update("UPDATE seat SET occupied = TRUE, version = 1 WHERE MOD(id, 3) = 0");
+        Map<String, List<Map<String, Object>>> saved = rows();
+
+        catalogSnapshot.save();
+        assertTrue(Files.isRegularFile(SNAPSHOT));
+        emptyDatabase();
+        assertTrue(catalogSnapshot.restore());
+
+        assertEquals(saved, rows());
+        long maxSeatId = maxId("seat");
+        long maxScheduleId = maxId("schedule");
+        assertTrue(genre("Thriller").getId() > maxId(saved.get("genres")));
+        Movie third = movie("Third", Set.of(comedy));
+        assertTrue(third.getId() > maxId(saved.get("movies")));
+        Hall otherHall = dataInitializer.createHall("Other hall", HallLayout.rectangle(2, 2));
+        assertTrue(otherHall.getId() > maxId(saved.get("halls")));
+        List<Schedule> schedules = schedules(third, third);
+        dataInitializer.createSchedules(schedules, otherHall);
+        for (Schedule schedule : schedules) {
+            assertTrue(schedule.getId() > maxScheduleId);
+        }
+        assertEquals(8, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM seat WHERE id > ?", Integer.class, maxSeatId));
+    }
+
+    @Test
+    void unreadableSnapshotIsRolledBackAndIgnored() throws IOException {
+        Genre genre = genre("Corrupt genre");
+        Hall hall = dataInitializer.createHall("Corrupt hall", HallLayout.rectangle(30, 30));
+        dataInitializer.createSchedules(schedules(movie("Corrupt movie", Set.of(genre))), hall);
+        Map<String, List<Map<String, Object>>> saved = rows();
+        catalogSnapshot.save();
+        byte[] snapshot = Files.readAllBytes(SNAPSHOT);
+        emptyDatabase();
+
+        Files.write(SNAPSHOT, Arrays.copyOf(snapshot, snapshot.length / 2));
+        assertFalse(catalogSnapshot.restore());
+        for (String table : TABLES) {
+            assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class), table);
+        }
+        Files.writeString(SNAPSHOT, "not a snapshot");
+        assertFalse(catalogSnapshot.restore());
+
+        Files.write(SNAPSHOT, snapshot);
+        assertTrue(catalogSnapshot.restore());
+        assertEquals(saved, rows());
+    }
+
+    private Genre genre(String name) {
+        Genre genre = new Genre();
+        genre.setName(name);
+        return genreRepository.save(genre);
+    }
+
+    private Movie movie(String name, Set<Genre> genres) {
+        Movie movie = new Movie();
+        movie.setMovieName(name);
+        movie.setRunningTimeInMinutes(120);
+        movie.setReleaseYear(2024);
+        movie.setDescription(name + " é");
+        movie.setGenres(genres);
+        movie.setGenreNames(String.join(", ", genres.stream().map(Genre::getName).sorted().toList()));
+        return movieRepository.save(movie);
+    }
+
+    private static List<Schedule> schedules(Movie... movies) {
+        List<Schedule> schedules = new ArrayList<>();
+        for (int i = 0; i < movies.length; i++) {
+            Schedule schedule = new Schedule();
+            schedule.setMovie(movies[i]);
+            schedule.setDateTime(LocalDateTime.of(2024, 5, 10, 11 + i, 0));
+            schedule.setLanguage("English");
+            schedules.add(schedule);
+        }
+        return schedules;
+    }
+
+    /**
+     * Deletes the catalog and starts the ids from 1 again, like in a new database
+     */
+    private void emptyDatabase() {
+        TABLES.forEach(table -> jdbcTemplate.update("DELETE FROM " + table));
+        for (String table : List.of("movies", "halls", "genres")) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH 1");
+        }
+        jdbcTemplate.execute("ALTER SEQUENCE schedule_seq RESTART WITH 1");
+        jdbcTemplate.execute("ALTER SEQUENCE seat_seq RESTART WITH 1");
+    }
+
+    private Map<String, List<Map<String, Object>>> rows() {
+        return Map.of(
+                "genres", jdbcTemplate.queryForList("SELECT * FROM genres ORDER BY id"),
+                "halls", jdbcTemplate.queryForList("SELECT * FROM halls ORDER BY id"),
+                "movies", jdbcTemplate.queryForList("SELECT * FROM movies ORDER BY id"),
+                "movie_genre", jdbcTemplate.queryForList("SELECT * FROM movie_genre ORDER BY movie_id, genre_id"),
+                "schedule", jdbcTemplate.queryForList("SELECT * FROM schedule ORDER BY id"),
+                "seat", jdbcTemplate.queryForList("SELECT * FROM seat ORDER BY id"));
+    }
+
+    private long maxId(String table) {
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+    }
+
+    private static long maxId(List<Map<String, Object>> rows) {
+        return rows.stream().mapToLong(row -> ((Number) row.get("ID")).longValue()).max().orElseThrow();
+    }
+}
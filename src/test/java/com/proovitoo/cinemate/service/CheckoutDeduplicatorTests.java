@@ -0,0 +1,108 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Checkout;
+import com.proovitoo.cinemate.entity.CheckoutItem;
+import com.proovitoo.cinemate.entity.CheckoutRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckoutDeduplicatorTests {
+    private final CheckoutRequest request = new CheckoutRequest(List.of(new CheckoutItem(1L, List.of(10L, 11L), null)));
+
+    @Test
+    void retriesGetTheFirstCheckout() {
+        CheckoutDeduplicator deduplicator = new CheckoutDeduplicator(100, Duration.ofHours(1));
+        AtomicInteger bookings = new AtomicInteger();
+
+        CheckoutDeduplicator.Result first = deduplicator.execute("key", request, () -> book(bookings));
+        CheckoutDeduplicator.Result retry = deduplicator.execute("key", request, () -> book(bookings));
+
+        assertEquals(1, bookings.get());
+        assertFalse(first.replayed());
+        assertTrue(retry.replayed());
+        assertEquals(first.checkout(), retry.checkout());
+        assertThrows(IdempotencyKeyReusedException.class, () -> deduplicator.execute("key",
+                new CheckoutRequest(List.of(new CheckoutItem(1L, List.of(12L), null))), () -> book(bookings)));
+    }
+
+    @Test
+    void rejectedPurchasesAreRememberedAndOtherFailuresAreNot() {
+        CheckoutDeduplicator deduplicator = new CheckoutDeduplicator(100, Duration.ofHours(1));
+        AtomicInteger bookings = new AtomicInteger();
+
+        assertThrows(SeatNotAvailableException.class, () -> deduplicator.execute("taken", request, () -> {
+            throw new SeatNotAvailableException(List.of(10L));
+        }));
+        assertThrows(SeatNotAvailableException.class, () -> deduplicator.execute("taken", request, () -> book(bookings)));
+
+        assertThrows(IllegalStateException.class, () -> deduplicator.execute("failed", request, () -> {
+            throw new IllegalStateException("Database is down");
+        }));
+        assertFalse(deduplicator.execute("failed", request, () -> book(bookings)).replayed());
+        assertEquals(1, bookings.get());
+    }
+
+    @Test
+    void concurrentRetriesWaitForTheRunningCheckout() throws Exception {
+        CheckoutDeduplicator deduplicator = new CheckoutDeduplicator(100, Duration.ofHours(1));
+        AtomicInteger bookings = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<CheckoutDeduplicator.Result> first = executor.submit(() -> deduplicator.execute("key", request, () -> {
+                started.countDown();
+                await(release);
+                return book(bookings);
+            }));
+            started.await();
+            List<Future<CheckoutDeduplicator.Result>> retries = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                retries.add(executor.submit(() -> deduplicator.execute("key", request, () -> book(bookings))));
+            }
+            release.countDown();
+
+            Checkout checkout = first.get(5, TimeUnit.SECONDS).checkout();
+            for (Future<CheckoutDeduplicator.Result> retry : retries) {
+                assertEquals(checkout, retry.get(5, TimeUnit.SECONDS).checkout());
+            }
+            assertEquals(1, bookings.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void keepsAtMostTheCapacity() {
+        CheckoutDeduplicator deduplicator = new CheckoutDeduplicator(2, Duration.ofHours(1));
+        AtomicInteger bookings = new AtomicInteger();
+        for (String key : List.of("a", "b", "c", "a")) {
+            deduplicator.execute(key, request, () -> book(bookings));
+        }
+
+        assertEquals(2, deduplicator.size());
+        assertEquals(4, bookings.get());
+    }
+
+    private Checkout book(AtomicInteger bookings) {
+        bookings.incrementAndGet();
+        return new Checkout(UUID.randomUUID(), request.items(), Instant.now());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
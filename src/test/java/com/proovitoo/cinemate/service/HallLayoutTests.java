@@ -0,0 +1,133 @@
+package com.proovitoo.cinemate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HallLayoutTests {
+
+    @Test
+    void parsesSeatsAislesAndMissingSeats() {
+        HallLayout layout = HallLayout.parse("SS_SS/.S_S.", null, null);
+
+        assertEquals(2, layout.getRows());
+        assertEquals(5, layout.getSeatsPerRow());
+        assertTrue(layout.isSeat(1, 1));
+        assertFalse(layout.isSeat(1, 3));
+        assertFalse(layout.isSeat(2, 1));
+        assertTrue(layout.isSeat(2, 2));
+        assertFalse(layout.isSeat(2, 5));
+        assertFalse(layout.isSeat(0, 1));
+        assertFalse(layout.isSeat(1, 6));
+        assertEquals("SS_SS/.S_S.", layout.pattern());
+        assertEquals(6, layout.toTemplate().size());
+    }
+
+    @Test
+    void raggedRowsArePaddedWithMissingSeats() {
+        HallLayout layout = HallLayout.parse(" SSSSS / SSS /S", null, null);
+
+        assertEquals(3, layout.getRows());
+        assertEquals(5, layout.getSeatsPerRow());
+        assertEquals("SSSSS/SSS../S....", layout.pattern());
+        assertFalse(layout.isSeat(2, 4));
+
+        HallTemplate template = layout.toTemplate();
+        assertEquals(9, template.size());
+        assertEquals(2, template.seatRow(7));
+        assertEquals(3, template.seatNumber(7));
+        assertEquals(3, template.seatRow(8));
+        assertEquals(1, template.seatNumber(8));
+    }
+
+    @Test
+    void emptyRowsHaveNoSeats() {
+        HallLayout layout = HallLayout.parse("SSS//SSS", null, null);
+
+        assertEquals(3, layout.getRows());
+        assertEquals("SSS/.../SSS", layout.pattern());
+        assertEquals(0, HallLayout.parse(" ", null, null).getRows());
+        assertEquals(0, HallLayout.parse(null, null, null).toTemplate().size());
+    }
+
+    @Test
+    void malformedLayoutsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> HallLayout.parse("SSS/SXS", null, null));
+        assertThrows(IllegalArgumentException.class, () -> HallLayout.parse("SS S/SSSS", null, null));
+        assertThrows(IllegalArgumentException.class, () -> HallLayout.parse("sss/sss", null, null));
+        assertThrows(IllegalArgumentException.class, () -> HallLayout.parse("SSS;SSS", null, null));
+    }
+
+    @Test
+    void scoresGrowWithTheDistanceFromTheCenter() {
+        HallLayout layout = HallLayout.parse("SSSSS/SSSSS/SSSSS/SSSSS", 3, 2);
+
+        assertEquals(3, layout.getCenterRow());
+        assertEquals(2, layout.getCenterSeat());
+        assertEquals(0, layout.score(3, 2));
+        assertEquals(layout.score(3, 1), layout.score(3, 3));
+        assertTrue(layout.score(3, 3) < layout.score(3, 4));
+        // Same distance, the seat in the center row wins
+        assertTrue(layout.score(3, 3) < layout.score(2, 2));
+        assertEquals(layout.score(2, 2), layout.score(4, 2));
+        assertEquals(layout.score(3, 2), layout.bestScoreInRow(3));
+        assertEquals(layout.score(1, 2), layout.bestScoreInRow(1));
+    }
+
+    @Test
+    void defaultCenterIsTheMiddleOfTheHall() {
+        HallLayout layout = HallLayout.parse("SSSS_SSSS/SSSS_SSSS/SSSS_SSSS", null, null);
+
+        assertEquals(2, layout.getCenterRow());
+        assertEquals(5, layout.getCenterSeat());
+        assertEquals(0, layout.score(2, 5));
+    }
+
+    @Test
+    void aisleSplitsABlock() {
+        HallLayout layout = HallLayout.parse("SSSS_SSSS/SSSS_SSSS/SSSS_SSSS", null, null);
+        SeatGrid grid = freeGrid(layout);
+
+        // The aisle at the center is not a seat, the best blocks of 3 are on both sides of it
+        assertEquals(new SeatBlock(2, 2, 3), SeatRecommender.findBestBlock(grid, layout, 3));
+        // The middle of an even block is left of its center, so the right side is closer
+        assertEquals(new SeatBlock(2, 6, 4), SeatRecommender.findBestBlock(grid, layout, 4));
+        assertNull(SeatRecommender.findBestBlock(grid, layout, 5));
+
+        List<SeatBlock> group = SeatRecommender.findBestGroup(grid, layout, 6);
+        assertEquals(2, group.size());
+        for (SeatBlock block : group) {
+            for (int seatNumber = block.firstSeat(); seatNumber <= block.lastSeat(); seatNumber++) {
+                assertTrue(layout.isSeat(block.row(), seatNumber));
+            }
+        }
+    }
+
+    @Test
+    void blocksDoNotCrossMissingSeats() {
+        HallLayout layout = HallLayout.parse("SSS.SSS", null, null);
+        SeatGrid grid = freeGrid(layout);
+
+        assertEquals(new SeatBlock(1, 1, 3), SeatRecommender.findBestBlock(grid, layout, 3));
+        assertNull(SeatRecommender.findBestBlock(grid, layout, 4));
+    }
+
+    /**
+     * @return - grid where every seat of the layout is free, like an empty seance
+     */
+    private static SeatGrid freeGrid(HallLayout layout) {
+        SeatGrid grid = new SeatGrid(layout.getRows(), layout.getSeatsPerRow());
+        for (int row = 1; row <= layout.getRows(); row++) {
+            for (int seatNumber = 1; seatNumber <= layout.getSeatsPerRow(); seatNumber++) {
+                grid.setFree(row, seatNumber, layout.isSeat(row, seatNumber));
+            }
+        }
+        return grid;
+    }
+}
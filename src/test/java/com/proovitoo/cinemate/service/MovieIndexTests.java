@@ -0,0 +1,76 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Movie;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MovieIndexTests {
+    private final MovieIndex index = new MovieIndex();
+
+    @Test
+    void combinesValuesOfAFieldWithOrAndFieldsWithAnd() {
+        index.rebuild(List.of(
+                movie(1L, "Drama, Romance", "PG-13", "USA", 2019),
+                movie(2L, "Comedy", "PG-13", "UK, USA", 2016),
+                movie(3L, "Comedy, Drama", "R", "USA", 2021),
+                movie(4L, "Drama", "PG-13", "Estonia", 2012),
+                movie(5L, "Horror", "PG-13", "USA", 2020)));
+
+        assertEquals(List.of(1L, 2L), ids(index.find(new MovieFilter(Set.of("Drama", "Comedy"), false,
+                Set.of("PG-13"), null, 2015, null))));
+        assertEquals(List.of(3L), ids(index.find(new MovieFilter(Set.of("drama", "COMEDY"), true, null, null, null, null))));
+        assertEquals(List.of(2L, 4L), ids(index.find(new MovieFilter(null, false, null, Set.of("uk", "Estonia"), null, null))));
+        assertEquals(List.of(1L, 2L, 5L), ids(index.find(new MovieFilter(null, false, null, null, 2016, 2020))));
+        assertEquals(List.of(), ids(index.find(new MovieFilter(null, false, null, null, 2020, 2019))));
+        assertEquals(List.of(), ids(index.find(new MovieFilter(Set.of("Drama", "Western"), true, null, null, null, null))));
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids(index.find(new MovieFilter(null, false, null, null, null, null))));
+    }
+
+    @Test
+    void savedMovieReplacesItsPreviousVersion() {
+        index.rebuild(List.of(movie(1L, "Drama", "PG-13", "USA", 2019), movie(2L, "Comedy", "R", "USA", 2020)));
+
+        index.onMovieSaved(new MovieSavedEvent(movie(1L, "Comedy", "R", "UK", 2022)));
+        index.onMovieSaved(new MovieSavedEvent(movie(3L, "Drama", "PG-13", "USA", 2019)));
+
+        assertEquals(List.of(3L), ids(index.find(new MovieFilter(Set.of("Drama"), false, Set.of("PG-13"), null, null, null))));
+        assertEquals(List.of(1L, 2L), ids(index.find(new MovieFilter(Set.of("Comedy"), false, Set.of("R"), null, null, null))));
+        assertEquals(List.of(1L), ids(index.find(new MovieFilter(null, false, null, Set.of("UK"), 2021, null))));
+        assertEquals(3, index.size());
+        assertEquals("UK", index.get(1L).getCountry());
+    }
+
+    @Test
+    void pagesFollowTheIdsWhateverOrderTheMoviesCameIn() {
+        index.rebuild(List.of(movie(7L, "Drama", "R", "USA", 2019), movie(3L, "Drama", "R", "USA", 2019),
+                movie(9L, "Comedy", "R", "USA", 2019), movie(5L, "Drama", "R", "USA", 2019)));
+        index.index(movie(4L, "Drama", "R", "USA", 2019));
+        index.index(movie(11L, "Drama", "R", "USA", 2019));
+        MovieFilter drama = new MovieFilter(Set.of("Drama"), false, null, null, null, null);
+
+        assertEquals(List.of(3L, 4L), ids(index.find(drama, 0, 2)));
+        assertEquals(List.of(5L, 7L), ids(index.find(drama, 4, 2)));
+        assertEquals(List.of(11L), ids(index.find(drama, 7, 2)));
+        assertEquals(List.of(), ids(index.find(drama, 11, 2)));
+        assertEquals(List.of(7L, 9L, 11L), ids(index.find(new MovieFilter(null, false, null, null, null, null), 6, 10)));
+    }
+
+    private static List<Long> ids(List<Movie> movies) {
+        return movies.stream().map(Movie::getId).toList();
+    }
+
+    private static Movie movie(Long id, String genres, String ageRestriction, String country, int releaseYear) {
+        Movie movie = new Movie();
+        movie.setId(id);
+        movie.setMovieName("Movie " + id);
+        movie.setGenreNames(genres);
+        movie.setAgeRestriction(ageRestriction);
+        movie.setCountry(country);
+        movie.setReleaseYear(releaseYear);
+        return movie;
+    }
+}
@@ -0,0 +1,131 @@
+package com.proovitoo.cinemate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieRecommenderTests {
+
+    @Test
+    void ranksMoviesWatchedByTheSameUsers() {
+        MovieRecommender recommender = new MovieRecommender(null, 100, 20, 1000);
+        for (int user = 0; user < 3; user++) {
+            recommender.view("fan" + user, 1);
+            recommender.view("fan" + user, 2);
+        }
+        recommender.view("fan0", 3);
+        recommender.view("other", 1);
+        recommender.view("other", 4);
+        // Watching the same movie again is not counted twice
+        recommender.view("other", 4);
+
+        assertEquals(List.of(2L, 3L, 4L), recommender.related(1, 10));
+        assertEquals(List.of(2L), recommender.related(1, 1));
+        assertEquals(List.of(1L), recommender.related(4, 10));
+        assertTrue(recommender.related(99, 10).isEmpty());
+
+        // Movies the user has watched are left out
+        assertEquals(List.of(3L, 4L), recommender.recommend("fan1", 10));
+        // Unknown users get the most watched movies
+        assertEquals(List.of(1L, 2L), recommender.recommend("new", 2));
+    }
+
+    @Test
+    void forgetsTheLeastRecentlyActiveUsers() {
+        MovieRecommender recommender = new MovieRecommender(null, 2, 3, 1000);
+        recommender.view("a", 1);
+        recommender.view("b", 1);
+        recommender.view("a", 2);
+        recommender.view("c", 1);
+
+        assertEquals(2, recommender.users());
+        // b was forgotten and gets the most watched movies, the counts of b are kept
+        assertEquals(List.of(1L, 2L), recommender.recommend("b", 10));
+        assertEquals(List.of(2L), recommender.recommend("c", 10));
+        assertTrue(recommender.recommend("a", 10).isEmpty());
+    }
+
+    @Test
+    void fullRowDropsMoviesSeenTogetherOnce() {
+        CooccurrenceRow row = new CooccurrenceRow(3);
+        row.increment(1);
+        row.increment(1);
+        row.increment(2);
+        row.increment(3);
+        assertTrue(row.hasRoomFor(1));
+        assertFalse(row.hasRoomFor(4));
+        assertFalse(row.increment(4));
+
+        int[] dropped = row.pruneSingles();
+        Arrays.sort(dropped);
+        assertArrayEquals(new int[]{2, 3}, dropped);
+        assertTrue(row.increment(4));
+        assertEquals(2, row.size());
+        assertEquals(2, row.get(1));
+        assertEquals(0, row.get(2));
+        assertEquals(1, row.get(4));
+        row.increment(4);
+        row.increment(0);
+        row.increment(0);
+        assertFalse(row.increment(5));
+        assertEquals(0, row.pruneSingles().length);
+        assertEquals(0, row.get(5));
+    }
+
+    @Test
+    void removedMoviesLeaveTheOthersReachable() {
+        CooccurrenceRow row = new CooccurrenceRow(1000);
+        for (int ordinal = 0; ordinal < 200; ordinal++) {
+            for (int i = 0; i <= ordinal % 3; i++) {
+                row.increment(ordinal);
+            }
+        }
+        for (int ordinal = 0; ordinal < 200; ordinal += 2) {
+            row.remove(ordinal);
+        }
+        row.remove(500);
+
+        assertEquals(100, row.size());
+        for (int ordinal = 0; ordinal < 200; ordinal++) {
+            assertEquals(ordinal % 2 == 0 ? 0 : ordinal % 3 + 1, row.get(ordinal));
+        }
+        assertTrue(row.increment(0));
+        assertEquals(1, row.get(0));
+    }
+
+    @Test
+    void fullRowsKeepTheCountsSymmetric() {
+        MovieRecommender recommender = new MovieRecommender(null, 100, 20, 2);
+        // The row of movie 1 is full of movies watched together twice
+        for (int user = 0; user < 2; user++) {
+            recommender.view("fan" + user, 1);
+            recommender.view("fan" + user, 2);
+            recommender.view("fan" + user, 3);
+        }
+        // Movie 4 has room for movie 1 but movie 1 has no room for movie 4, the pair is counted in neither row
+        recommender.view("late", 1);
+        recommender.view("late", 4);
+
+        assertEquals(List.of(2L, 3L), recommender.related(1, 10));
+        assertEquals(List.of(), recommender.related(4, 10));
+
+        // Movies watched together once are dropped from both rows to make room
+        recommender.view("a", 5);
+        recommender.view("a", 6);
+        recommender.view("b", 5);
+        recommender.view("b", 7);
+        recommender.view("c", 8);
+        recommender.view("c", 5);
+
+        assertEquals(List.of(8L), recommender.related(5, 10));
+        assertEquals(List.of(5L), recommender.related(8, 10));
+        assertEquals(List.of(), recommender.related(6, 10));
+        assertEquals(List.of(), recommender.related(7, 10));
+    }
+}
@@ -0,0 +1,104 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Movie;
+import com.proovitoo.cinemate.entity.MovieSummary;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieSearchIndexTests {
+
+    @Test
+    void ranksTitleMatchesFirstAndCompletesTheLastWord() {
+        MovieSearchIndex index = new MovieSearchIndex();
+        index.rebuild(List.of(
+                movie(1L, "Dune", "Timothée Chalamet, Zendaya", "Denis Villeneuve", "Paul travels to the planet Arrakis."),
+                movie(2L, "Dune: Part Two", "Timothée Chalamet, Zendaya", "Denis Villeneuve", "Paul unites with the Fremen."),
+                movie(3L, "Apteeker Melchior", "Märt Pius", "Elmo Nüganen", "A pharmacist solves murders near a dune.")));
+
+        assertEquals(List.of(1L, 2L, 3L), ids(index.search("dune", 10)));
+        assertEquals(List.of(1L, 2L, 3L), ids(index.search("Du", 10)));
+        assertEquals(List.of(1L, 2L), ids(index.search("chal", 10)));
+        assertEquals(List.of(2L), ids(index.search("timothee dune tw", 10)));
+        assertEquals(List.of(3L), ids(index.search("NUGANEN", 10)));
+        assertEquals(List.of(1L), ids(index.search("dune", 1)));
+        assertTrue(index.search("arrakis paul zzz", 10).isEmpty());
+        assertTrue(index.search(" - ", 10).isEmpty());
+    }
+
+    @Test
+    void replacesTheWordsOfASavedMovie() {
+        MovieSearchIndex index = new MovieSearchIndex();
+        index.rebuild(List.of(movie(1L, "Oppenheimer", "Cillian Murphy", "Christopher Nolan", "The atomic bomb.")));
+        index.onMovieSaved(new MovieSavedEvent(movie(1L, "Oppenheimer", "Cillian Murphy", "Nolan", "Physics.")));
+        index.onMovieSaved(new MovieSavedEvent(movie(2L, "Tenet", "John David Washington", "Christopher Nolan", "Time.")));
+
+        assertEquals(List.of(2L), ids(index.search("christopher", 10)));
+        assertEquals(List.of(1L), ids(index.search("physics", 10)));
+        assertTrue(index.search("atomic", 10).isEmpty());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void prefixIsCompletedToTheWordsInTheMostMovies() {
+        List<Movie> catalog = new ArrayList<>();
+        for (long id = 1; id <= 250; id++) {
+            catalog.add(movie(id, "Movie " + id, null, null, "Seen once: zeta" + (1000 + id)));
+        }
+        for (long id = 251; id <= 255; id++) {
+            catalog.add(movie(id, "Movie " + id, null, null, "A zzyzx road trip."));
+        }
+        MovieSearchIndex index = new MovieSearchIndex();
+        index.rebuild(catalog);
+
+        List<Long> found = ids(index.search("z", 1000));
+        assertEquals(204, found.size());
+        assertTrue(found.containsAll(List.of(251L, 252L, 253L, 254L, 255L)));
+        assertEquals(List.of(251L, 252L, 253L, 254L, 255L), ids(index.search("road z", 10)));
+    }
+
+    @Test
+    void limitedSearchReturnsTheBeginningOfTheFullRanking() {
+        String[] vocabulary = {"space", "war", "love", "story", "night", "city", "dark", "light", "storm", "star"};
+        Random random = new Random(42);
+        List<Movie> catalog = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            StringBuilder description = new StringBuilder();
+            for (int i = random.nextInt(20) + 1; i > 0; i--) {
+                description.append(vocabulary[random.nextInt(vocabulary.length)]).append(' ');
+            }
+            catalog.add(movie(id, vocabulary[random.nextInt(vocabulary.length)], null, null, description.toString()));
+        }
+        MovieSearchIndex index = new MovieSearchIndex();
+        index.rebuild(catalog);
+
+        for (String query : List.of("star", "st", "war love", "dark night s", "city storm light")) {
+            List<Long> all = ids(index.search(query, catalog.size()));
+            assertFalse(all.isEmpty(), query);
+            for (int limit : new int[]{1, 3, 10, 50}) {
+                assertEquals(all.subList(0, Math.min(limit, all.size())), ids(index.search(query, limit)), query);
+            }
+        }
+        assertTrue(index.search("star", 0).isEmpty());
+    }
+
+    private static List<Long> ids(List<MovieSummary> movies) {
+        return movies.stream().map(MovieSummary::id).toList();
+    }
+
+    private static Movie movie(Long id, String name, String actors, String director, String description) {
+        Movie movie = new Movie();
+        movie.setId(id);
+        movie.setMovieName(name);
+        movie.setActors(actors);
+        movie.setDirector(director);
+        movie.setDescription(description);
+        return movie;
+    }
+}
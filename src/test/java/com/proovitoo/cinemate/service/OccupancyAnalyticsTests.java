@@ -0,0 +1,103 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Movie;
+import com.proovitoo.cinemate.entity.MovieOccupancy;
+import com.proovitoo.cinemate.entity.Schedule;
+import com.proovitoo.cinemate.entity.SlotOccupancy;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccupancyAnalyticsTests {
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 10);
+
+    private final OccupancyAnalytics analytics = new OccupancyAnalytics(new JdbcTemplate());
+
+    @Test
+    void addsPurchasesToTheMovieAndTheHourOfTheSeance() {
+        analytics.onSeatsGenerated(new SeatsGeneratedEvent(List.of(
+                schedule(1L, 10L, DAY.atTime(11, 0)),
+                schedule(2L, 10L, DAY.atTime(11, 30)),
+                schedule(3L, 20L, DAY.atTime(13, 0)),
+                schedule(4L, null, DAY.atTime(13, 15)),
+                schedule(5L, 10L, DAY.plusDays(1).atTime(11, 0))), 10));
+
+        buy(1L, 3);
+        buy(2L, 2);
+        buy(3L, 6);
+        buy(4L, 1);
+        buy(5L, 10);
+
+        assertEquals(List.of(new MovieOccupancy(20L, 1, 6, 10, 0.6), new MovieOccupancy(10L, 2, 5, 20, 0.25)),
+                analytics.getMovies(DAY));
+        assertEquals(List.of(new SlotOccupancy(DAY.atTime(11, 0), 2, 5, 20, 0.25),
+                        new SlotOccupancy(DAY.atTime(13, 0), 2, 7, 20, 0.35)),
+                analytics.getSlots(DAY));
+        assertEquals(List.of(1L, 2L, 3L, 4L), analytics.getSchedules(DAY).stream().map(s -> s.scheduleId()).toList());
+        assertEquals(List.of(new MovieOccupancy(10L, 1, 10, 10, 1.0)), analytics.getMovies(DAY.plusDays(1)));
+        assertEquals(List.of(), analytics.getMovies(DAY.minusDays(1)));
+    }
+
+    @Test
+    void concurrentPurchasesAreAllCounted() throws Exception {
+        analytics.onSeatsGenerated(new SeatsGeneratedEvent(List.of(schedule(1L, 10L, DAY.atTime(19, 0))), 10_000));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        buy(1L, 1);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(8000, analytics.getSchedule(1L).sold());
+        assertEquals(8000, analytics.getMovies(DAY).get(0).sold());
+        assertEquals(8000, analytics.getSlots(DAY).get(0).sold());
+    }
+
+    @Test
+    void generatedSeancesAreRegisteredOnlyOnce() {
+        Schedule schedule = schedule(1L, 10L, DAY.atTime(19, 0));
+        analytics.onSeatsGenerated(new SeatsGeneratedEvent(List.of(schedule), 10));
+        buy(1L, 4);
+        analytics.onSeatsGenerated(new SeatsGeneratedEvent(List.of(schedule), 10));
+
+        assertEquals(4, analytics.getSchedule(1L).sold());
+        assertEquals(1, analytics.getMovies(DAY).get(0).seances());
+        assertNull(analytics.getSchedule(2L));
+    }
+
+    private void buy(Long scheduleId, int seats) {
+        analytics.onSeatsOccupied(new SeatsOccupiedEvent(scheduleId, Collections.nCopies(seats, 0L)));
+    }
+
+    private static Schedule schedule(Long id, Long movieId, LocalDateTime dateTime) {
+        Schedule schedule = new Schedule();
+        schedule.setId(id);
+        schedule.setDateTime(dateTime);
+        if (movieId != null) {
+            Movie movie = new Movie();
+            movie.setId(movieId);
+            schedule.setMovie(movie);
+        }
+        return schedule;
+    }
+}
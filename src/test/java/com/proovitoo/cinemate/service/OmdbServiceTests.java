@@ -0,0 +1,121 @@
+package com.proovitoo.cinemate.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proovitoo.cinemate.entity.Movie;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs OmdbService against a local stub server instead of omdbapi.com
+ */
+class OmdbServiceTests {
+    @TempDir
+    Path cacheDirectory;
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::respond);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void fetchesTitlesConcurrentlyInOrder() {
+        List<Movie> movies = omdbService(stubUrl()).fetchMovieData(List.of("Dune", "One Life", "Missing", "Oppenheimer"));
+
+        assertEquals(List.of("Dune", "One Life", "Oppenheimer"), movies.stream().map(Movie::getMovieName).toList());
+        assertEquals(4, requests.get());
+        assertEquals(2021, movies.get(0).getReleaseYear());
+        assertEquals("8.0/10", movies.get(0).getImdbRating());
+    }
+
+    @Test
+    void fetchesOnVirtualThreadsWhenTheyAreEnabled() {
+        List<Movie> movies = omdbService(stubUrl(), true).fetchMovieData(List.of("Dune", "Missing", "Oppenheimer"));
+
+        assertEquals(List.of("Dune", "Oppenheimer"), movies.stream().map(Movie::getMovieName).toList());
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    void replaysResponsesFromDisk() {
+        omdbService(stubUrl()).fetchMovieData(List.of("Dune", "One Life"));
+        server.stop(0);
+
+        List<Movie> movies = omdbService("http://localhost:1/").fetchMovieData(List.of("Dune", "One Life"));
+
+        assertEquals(List.of("Dune", "One Life"), movies.stream().map(Movie::getMovieName).toList());
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void doesNotCacheUnknownTitles() {
+        OmdbService omdbService = omdbService(stubUrl());
+
+        assertNull(omdbService.fetchMovieData("Missing"));
+        assertNull(omdbService.fetchMovieData("Missing"));
+        assertEquals(2, requests.get());
+    }
+
+    private OmdbService omdbService(String url) {
+        return omdbService(url, false);
+    }
+
+    private OmdbService omdbService(String url, boolean virtualThreads) {
+        return new OmdbService(new RestTemplate(), new ObjectMapper(), url, "test", cacheDirectory, 4, virtualThreads);
+    }
+
+    private String stubUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String title = "";
+        for (String parameter : exchange.getRequestURI().getRawQuery().split("&")) {
+            if (parameter.startsWith("t=")) {
+                title = URLDecoder.decode(parameter.substring(2), StandardCharsets.UTF_8);
+            }
+        }
+        String body = title.equals("Missing")
+                ? "{\"Response\":\"False\",\"Error\":\"Movie not found!\"}"
+                : """
+                {"Title":"%s","Year":"2021","Rated":"PG-13","Runtime":"155 min","Genre":"Action, Adventure, Drama",
+                 "Plot":"Plot","Poster":"N/A","Director":"Director","Writer":"Writer","Actors":"Actors",
+                 "Country":"United States","Metascore":"74",
+                 "Ratings":[{"Source":"Internet Movie Database","Value":"8.0/10"}],"Response":"True"}
+                """.formatted(title);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
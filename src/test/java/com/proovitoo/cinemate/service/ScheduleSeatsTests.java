@@ -0,0 +1,42 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Seat;
+import com.proovitoo.cinemate.entity.SeatMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ScheduleSeatsTests {
+
+    @Test
+    void groupWiderThanARowIsSplitOverAdjacentRows() {
+        ScheduleSeats seats = new ScheduleSeats(1L, 0, emptyHall(9, 9), Set.of(), HallLayout.rectangle(9, 9));
+
+        List<SeatMap.Block> recommended = seats.recommend(12, 0).recommended();
+
+        assertEquals(2, recommended.size());
+        assertEquals(recommended.get(0).row() + 1, recommended.get(1).row());
+        assertEquals(12, recommended.stream().mapToInt(SeatMap.Block::size).sum());
+        assertEquals(3, seats.recommend(27, 2).recommended().size());
+        assertEquals(List.of(), seats.recommend(28, 0).recommended());
+    }
+
+    private static List<Seat> emptyHall(int rows, int seatsPerRow) {
+        List<Seat> seats = new ArrayList<>();
+        long id = 1;
+        for (int row = 1; row <= rows; row++) {
+            for (int number = 1; number <= seatsPerRow; number++) {
+                Seat seat = new Seat();
+                seat.setId(id++);
+                seat.setSeatRow(row);
+                seat.setSeatNumber(number);
+                seats.add(seat);
+            }
+        }
+        return seats;
+    }
+}
@@ -0,0 +1,285 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Checkout;
+import com.proovitoo.cinemate.entity.CheckoutItem;
+import com.proovitoo.cinemate.entity.CheckoutRequest;
+import com.proovitoo.cinemate.entity.Schedule;
+import com.proovitoo.cinemate.entity.Seat;
+import com.proovitoo.cinemate.entity.SeatHold;
+import com.proovitoo.cinemate.repository.ScheduleRepository;
+import com.proovitoo.cinemate.repository.SeatRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class SeatBookingConcurrencyTests {
+    private static final int THREADS = 32;
+
+    @MockBean
+    private OmdbService omdbService;
+    @Autowired
+    private CinemaService cinemaService;
+    @Autowired
+    private ScheduleRepository scheduleRepository;
+    @Autowired
+    private SeatRepository seatRepository;
+    @Autowired
+    private OccupancyAnalytics occupancyAnalytics;
+    @Autowired
+    private SeatHolds seatHolds;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long scheduleId;
+    private List<Long> seatIds;
+
+    @BeforeEach
+    void createSchedule() {
+        Schedule schedule = new Schedule();
+        schedule.setDateTime(LocalDateTime.now());
+        scheduleId = scheduleRepository.save(schedule).getId();
+        seatIds = createSeats(schedule, 9);
+    }
+
+    @Test
+    void onlyOneBuyerGetsTheSameSeats() throws Exception {
+        List<Long> wanted = seatIds.subList(3, 6);
+        List<Boolean> results = runConcurrently(i -> wanted);
+
+        assertEquals(1, results.stream().filter(Boolean::booleanValue).count());
+        assertTrue(seatRepository.findAllById(wanted).stream().allMatch(Seat::isOccupied));
+        assertEquals(3, occupancyAnalytics.getSchedule(scheduleId).sold());
+        assertEquals(9, occupancyAnalytics.getSchedule(scheduleId).seats());
+    }
+
+    @Test
+    void overlappingPurchasesNeverShareSeats() throws Exception {
+        List<List<Long>> requests = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int start = i % (seatIds.size() - 1);
+            requests.add(List.of(seatIds.get(start), seatIds.get(start + 1)));
+        }
+        List<Boolean> results = runConcurrently(requests::get);
+
+        Set<Long> sold = new HashSet<>();
+        for (int i = 0; i < THREADS; i++) {
+            if (results.get(i)) {
+                for (Long seatId : requests.get(i)) {
+                    assertTrue(sold.add(seatId), "Seat " + seatId + " was sold twice");
+                }
+            }
+        }
+        assertFalse(sold.isEmpty());
+        for (Seat seat : seatRepository.findAllById(seatIds)) {
+            assertEquals(sold.contains(seat.getId()), seat.isOccupied());
+        }
+    }
+
+    @Test
+    void purchaseIsRejectedAsAWhole() {
+        cinemaService.updateSeatOccupancy(List.of(seatIds.get(0)), null);
+
+        SeatNotAvailableException exception = assertThrows(SeatNotAvailableException.class,
+                () -> cinemaService.updateSeatOccupancy(List.of(seatIds.get(0), seatIds.get(1)), null));
+        assertEquals(List.of(seatIds.get(0)), exception.getSeatIds());
+        assertFalse(seatRepository.findById(seatIds.get(1)).orElseThrow().isOccupied());
+
+        assertThrows(InvalidRequestException.class,
+                () -> cinemaService.updateSeatOccupancy(Arrays.asList(seatIds.get(1), null), null));
+        assertThrows(InvalidRequestException.class, () -> cinemaService.holdSeats(scheduleId, Arrays.asList(seatIds.get(1), null)));
+        assertFalse(seatRepository.findById(seatIds.get(1)).orElseThrow().isOccupied());
+    }
+
+    @Test
+    void heldSeatsCanOnlyBeBoughtWithTheHold() {
+        List<Long> wanted = seatIds.subList(6, 8);
+        SeatHold hold = cinemaService.holdSeats(scheduleId, wanted);
+
+        assertThrows(SeatNotAvailableException.class, () -> cinemaService.updateSeatOccupancy(wanted, null));
+        cinemaService.updateSeatOccupancy(wanted, hold.holdId());
+        assertTrue(seatRepository.findAllById(wanted).stream().allMatch(Seat::isOccupied));
+        assertFalse(cinemaService.releaseHold(hold.holdId()));
+    }
+
+    @Test
+    void boughtSeatsLeaveTheHoldAndTheRestStayHeld() {
+        SeatHold hold = cinemaService.holdSeats(scheduleId, seatIds.subList(0, 3));
+
+        cinemaService.updateSeatOccupancy(List.of(seatIds.get(1)), hold.holdId());
+        assertEquals(Set.of(seatIds.get(0), seatIds.get(2)), seatHolds.getHeldSeats(scheduleId));
+        assertThrows(SeatNotAvailableException.class, () -> cinemaService.updateSeatOccupancy(List.of(seatIds.get(0)), null));
+
+        cinemaService.updateSeatOccupancy(List.of(seatIds.get(0), seatIds.get(2)), hold.holdId());
+        assertEquals(Set.of(), seatHolds.getHeldSeats(scheduleId));
+        assertFalse(cinemaService.releaseHold(hold.holdId()));
+    }
+
+    @Test
+    void seatsCanNotBeHeldWhileTheyAreBeingBought() {
+        List<Long> wanted = seatIds.subList(0, 2);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                cinemaService.updateSeatOccupancy(wanted, null);
+                // The purchase is not committed yet, so another user still reads the seats as free
+                Future<SeatHold> hold = executor.submit(() -> cinemaService.holdSeats(scheduleId, wanted));
+                ExecutionException exception = assertThrows(ExecutionException.class, () -> hold.get(30, TimeUnit.SECONDS));
+                assertInstanceOf(SeatNotAvailableException.class, exception.getCause());
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(seatRepository.findAllById(wanted).stream().allMatch(Seat::isOccupied));
+        assertThrows(SeatNotAvailableException.class, () -> cinemaService.holdSeats(scheduleId, wanted));
+        assertEquals(Set.of(), seatHolds.getHeldSeats(scheduleId));
+    }
+
+    @Test
+    void holdAndPurchaseOfTheSameSeatNeverBothSucceed() throws Exception {
+        List<Long> contested = createSeats(scheduleRepository.findById(scheduleId).orElseThrow(), THREADS * 4);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> holds = new ArrayList<>();
+            List<Future<Boolean>> purchases = new ArrayList<>();
+            for (Long seatId : contested) {
+                holds.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        cinemaService.holdSeats(scheduleId, List.of(seatId));
+                        return true;
+                    } catch (SeatNotAvailableException e) {
+                        return false;
+                    }
+                }));
+                purchases.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        cinemaService.updateSeatOccupancy(List.of(seatId), null);
+                        return true;
+                    } catch (SeatNotAvailableException | ConcurrencyFailureException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            Set<Long> heldSeats = new HashSet<>();
+            for (int i = 0; i < contested.size(); i++) {
+                boolean held = holds.get(i).get(30, TimeUnit.SECONDS);
+                boolean bought = purchases.get(i).get(30, TimeUnit.SECONDS);
+                assertTrue(held != bought, "Seat " + contested.get(i) + " held " + held + ", bought " + bought);
+                if (held) {
+                    heldSeats.add(contested.get(i));
+                }
+            }
+            assertEquals(heldSeats, seatHolds.getHeldSeats(scheduleId));
+            for (Seat seat : seatRepository.findAllById(contested)) {
+                assertEquals(!heldSeats.contains(seat.getId()), seat.isOccupied());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void checkoutOfSeveralSeancesIsAllOrNothing() {
+        cinemaService.updateSeatOccupancy(List.of(seatIds.get(8)), null);
+        CheckoutItem first = new CheckoutItem(scheduleId, seatIds.subList(0, 2), null);
+
+        assertThrows(InvalidRequestException.class, () -> cinemaService.checkout(new CheckoutRequest(List.of())));
+        assertThrows(InvalidRequestException.class, () -> cinemaService.checkout(new CheckoutRequest(List.of(first, first))));
+        assertThrows(InvalidRequestException.class, () -> cinemaService.checkout(new CheckoutRequest(
+                List.of(new CheckoutItem(scheduleId, Arrays.asList(seatIds.get(0), null), null)))));
+
+        assertThrows(SeatNotAvailableException.class, () -> cinemaService.checkout(new CheckoutRequest(
+                List.of(first, new CheckoutItem(scheduleId, List.of(seatIds.get(8)), null)))));
+        assertThrows(SeatNotAvailableException.class, () -> cinemaService.checkout(new CheckoutRequest(
+                List.of(first, new CheckoutItem(scheduleId + 1, List.of(seatIds.get(2)), null)))));
+        assertTrue(seatRepository.findAllById(seatIds.subList(0, 3)).stream().noneMatch(Seat::isOccupied));
+
+        Checkout checkout = cinemaService.checkout(new CheckoutRequest(
+                List.of(first, new CheckoutItem(scheduleId, List.of(seatIds.get(2)), null))));
+        assertEquals(2, checkout.items().size());
+        assertTrue(seatRepository.findAllById(seatIds.subList(0, 3)).stream().allMatch(Seat::isOccupied));
+    }
+
+    @Test
+    void seatWithoutASeanceIsNotAvailable() {
+        Seat seat = new Seat();
+        seat.setSeatRow(1);
+        seat.setSeatNumber(1);
+        Long seatId = seatRepository.save(seat).getId();
+
+        SeatNotAvailableException exception = assertThrows(SeatNotAvailableException.class, () -> cinemaService.checkout(
+                new CheckoutRequest(List.of(new CheckoutItem(scheduleId, List.of(seatId), null)))));
+        assertEquals(List.of(seatId), exception.getSeatIds());
+        assertThrows(SeatNotAvailableException.class, () -> cinemaService.holdSeats(scheduleId, List.of(seatId)));
+    }
+
+    private List<Long> createSeats(Schedule schedule, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Seat seat = new Seat();
+            seat.setSchedule(schedule);
+            seat.setSeatRow(1);
+            seat.setSeatNumber(i);
+            ids.add(seatRepository.save(seat).getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Starts all the purchases at the same time
+     * @return - for every thread whether its purchase succeeded
+     */
+    private List<Boolean> runConcurrently(IntFunction<List<Long>> request) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger unexpected = new AtomicInteger();
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                List<Long> ids = request.apply(i);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        cinemaService.updateSeatOccupancy(ids, null);
+                        return true;
+                    } catch (SeatNotAvailableException | ConcurrencyFailureException e) {
+                        return false;
+                    } catch (RuntimeException e) {
+                        unexpected.incrementAndGet();
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            List<Boolean> results = new ArrayList<>();
+            for (Future<Boolean> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            assertEquals(0, unexpected.get());
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
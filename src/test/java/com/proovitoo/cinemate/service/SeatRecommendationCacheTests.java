@@ -0,0 +1,120 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Seat;
+import com.proovitoo.cinemate.entity.SeatHold;
+import com.proovitoo.cinemate.entity.SeatMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeatRecommendationCacheTests {
+    private static final Long SCHEDULE_ID = 1L;
+    private static final Long OTHER_SCHEDULE_ID = 2L;
+
+    private SeatRecommendationCache cache;
+    private SeatHolds seatHolds;
+    private List<Seat> seats;
+    private CountingLoader loader;
+    private CountingLoader otherLoader;
+
+    @BeforeEach
+    void setUp() {
+        // Hold changes reach the cache the same way the application event multicaster delivers them
+        seatHolds = new SeatHolds(event -> cache.onSeatHoldsChanged((SeatHoldsChangedEvent) event),
+                Duration.ofMinutes(10), Duration.ofMillis(250));
+        cache = new SeatRecommendationCache(new HallLayouts(), seatHolds);
+        seats = emptyHall(3, 3);
+        loader = new CountingLoader(seats);
+        otherLoader = new CountingLoader(emptyHall(3, 3));
+    }
+
+    @Test
+    void warmReadDoesNotLoadTheSeats() {
+        SeatMap first = cache.getSeatMap(SCHEDULE_ID, 2, 1, loader);
+        SeatMap second = cache.getSeatMap(SCHEDULE_ID, 2, 1, loader);
+        cache.getSeatMap(SCHEDULE_ID, 3, 0, loader);
+
+        assertEquals(1, loader.calls.get());
+        assertEquals(first.version(), second.version());
+        assertEquals(first.recommended(), second.recommended());
+    }
+
+    @Test
+    void occupiedSeatsInvalidateTheSeance() {
+        cache.getSeatMap(SCHEDULE_ID, 2, 0, loader);
+        cache.getSeatMap(OTHER_SCHEDULE_ID, 2, 0, otherLoader);
+
+        seats.get(4).setOccupied(true);
+        cache.onSeatsOccupied(new SeatsOccupiedEvent(SCHEDULE_ID, List.of(seats.get(4).getId())));
+        SeatMap seatMap = cache.getSeatMap(SCHEDULE_ID, 2, 0, loader);
+        cache.getSeatMap(OTHER_SCHEDULE_ID, 2, 0, otherLoader);
+
+        assertEquals(2, loader.calls.get());
+        assertEquals(1, otherLoader.calls.get());
+        assertEquals(1, seatMap.version());
+        assertTrue(isSet(seatMap.occupied(), 4));
+    }
+
+    @Test
+    void heldAndReleasedSeatsInvalidateTheSeance() {
+        SeatMap empty = cache.getSeatMap(SCHEDULE_ID, 2, 0, loader);
+        cache.getSeatMap(OTHER_SCHEDULE_ID, 2, 0, otherLoader);
+
+        SeatHold hold = seatHolds.hold(SCHEDULE_ID, List.of(seats.get(4).getId()));
+        SeatMap held = cache.getSeatMap(SCHEDULE_ID, 2, 0, loader);
+        seatHolds.release(hold.holdId());
+        SeatMap released = cache.getSeatMap(SCHEDULE_ID, 2, 0, loader);
+        cache.getSeatMap(OTHER_SCHEDULE_ID, 2, 0, otherLoader);
+
+        assertEquals(3, loader.calls.get());
+        assertEquals(1, otherLoader.calls.get());
+        assertEquals(List.of(0L, 1L, 2L), List.of(empty.version(), held.version(), released.version()));
+        assertTrue(isSet(held.held(), 4));
+        assertEquals(empty.recommended(), released.recommended());
+    }
+
+    private static boolean isSet(byte[] bits, int position) {
+        return (bits[position >>> 3] & (1 << (position & 7))) != 0;
+    }
+
+    private static List<Seat> emptyHall(int rows, int seatsPerRow) {
+        List<Seat> seats = new ArrayList<>();
+        long id = 1;
+        for (int row = 1; row <= rows; row++) {
+            for (int number = 1; number <= seatsPerRow; number++) {
+                Seat seat = new Seat();
+                seat.setId(id++);
+                seat.setSeatRow(row);
+                seat.setSeatNumber(number);
+                seats.add(seat);
+            }
+        }
+        return seats;
+    }
+
+    /**
+     * Stands in for the seat repository, every call would be a database query
+     */
+    private static class CountingLoader implements Supplier<List<Seat>> {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final List<Seat> seats;
+
+        CountingLoader(List<Seat> seats) {
+            this.seats = seats;
+        }
+
+        @Override
+        public List<Seat> get() {
+            calls.incrementAndGet();
+            return seats;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.proovitoo.cinemate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeatRecommenderTests {
+
+    @Test
+    void recommendsMiddleOfEmptyHall() {
+        SeatGrid grid = fullGrid(9, 9);
+        assertEquals(new SeatBlock(5, 5, 1), SeatRecommender.findBestBlock(grid, 1));
+        assertEquals(new SeatBlock(5, 4, 3), SeatRecommender.findBestBlock(grid, 3));
+        assertEquals(new SeatBlock(5, 4, 4), SeatRecommender.findBestBlock(grid, 4));
+    }
+
+    @Test
+    void returnsNothingWhenBlockDoesNotFit() {
+        SeatGrid grid = fullGrid(9, 9);
+        for (int row = 1; row <= 9; row++) {
+            grid.setFree(row, 5, false);
+        }
+        assertNull(SeatRecommender.findBestBlock(grid, 5));
+        assertNull(SeatRecommender.findBestBlock(grid, 10));
+        assertNull(SeatRecommender.findBestBlock(grid, 0));
+    }
+
+    @Test
+    void matchesPreviousAlgorithmOnRandomOccupancy() {
+        Random random = new Random(42);
+        for (int round = 0; round < 2000; round++) {
+            boolean[][] occupied = new boolean[10][10];
+            SeatGrid grid = fullGrid(9, 9);
+            double fill = random.nextDouble();
+            for (int row = 1; row <= 9; row++) {
+                for (int seat = 1; seat <= 9; seat++) {
+                    if (random.nextDouble() < fill) {
+                        occupied[row][seat] = true;
+                        grid.setFree(row, seat, false);
+                    }
+                }
+            }
+            for (int tickets = 1; tickets <= 9; tickets++) {
+                assertEquals(previousAlgorithm(occupied, tickets), SeatRecommender.findBestBlock(grid, tickets));
+            }
+        }
+    }
+
+    @Test
+    void splitsGroupOverAdjacentRowsWhenNoRowFits() {
+        SeatGrid grid = fullGrid(9, 9);
+        for (int row = 1; row <= 9; row++) {
+            grid.setFree(row, 3, false);
+            grid.setFree(row, 7, false);
+        }
+        HallLayout layout = HallLayout.rectangle(9, 9);
+
+        assertEquals(List.of(new SeatBlock(5, 4, 3)), SeatRecommender.findBestGroup(grid, layout, 3));
+        assertEquals(List.of(new SeatBlock(4, 4, 3), new SeatBlock(5, 4, 3)), SeatRecommender.findBestGroup(grid, layout, 6));
+        assertEquals(List.of(new SeatBlock(4, 4, 3), new SeatBlock(5, 4, 3), new SeatBlock(6, 5, 2)),
+                SeatRecommender.findBestGroup(grid, layout, 8));
+        assertEquals(List.of(), SeatRecommender.findBestGroup(grid, layout, 10));
+    }
+
+    @Test
+    void prunedSplitSearchMatchesExhaustiveSearch() {
+        Random random = new Random(7);
+        HallLayout layout = HallLayout.rectangle(12, 15);
+        for (int round = 0; round < 500; round++) {
+            SeatGrid grid = fullGrid(12, 15);
+            for (int row = 1; row <= 12; row++) {
+                for (int seat = 1; seat <= 15; seat++) {
+                    if (random.nextDouble() < 0.6) {
+                        grid.setFree(row, seat, false);
+                    }
+                }
+            }
+            for (int tickets = 4; tickets <= 8; tickets += 2) {
+                if (SeatRecommender.findBestBlock(grid, layout, tickets) != null) {
+                    continue;
+                }
+                List<SeatBlock> group = SeatRecommender.findBestGroup(grid, layout, tickets);
+                long expected = exhaustiveTwoRowScore(grid, layout, tickets / 2);
+                assertEquals(expected, group.size() == 2 ? groupScore(layout, group) : Long.MAX_VALUE);
+            }
+        }
+    }
+
+    @Test
+    void ranksNonOverlappingAlternatives() {
+        SeatGrid grid = fullGrid(9, 9);
+        HallLayout layout = HallLayout.rectangle(9, 9);
+
+        assertEquals(List.of(new SeatBlock(5, 4, 3), new SeatBlock(4, 4, 3), new SeatBlock(6, 4, 3),
+                        new SeatBlock(3, 4, 3), new SeatBlock(7, 4, 3)),
+                SeatRecommender.findBestBlocks(grid, layout, 3, 5));
+    }
+
+    @Test
+    void bestAlternativeIsTheRecommendedBlock() {
+        Random random = new Random(3);
+        HallLayout layout = HallLayout.rectangle(9, 9);
+        for (int round = 0; round < 500; round++) {
+            SeatGrid grid = fullGrid(9, 9);
+            for (int row = 1; row <= 9; row++) {
+                for (int seat = 1; seat <= 9; seat++) {
+                    grid.setFree(row, seat, random.nextDouble() > 0.5);
+                }
+            }
+            for (int tickets = 1; tickets <= 4; tickets++) {
+                SeatBlock best = SeatRecommender.findBestBlock(grid, layout, tickets);
+                List<SeatBlock> ranked = SeatRecommender.findBestBlocks(grid, layout, tickets, 4);
+                assertEquals(best, ranked.isEmpty() ? null : ranked.get(0));
+                for (int i = 0; i < ranked.size(); i++) {
+                    for (int j = i + 1; j < ranked.size(); j++) {
+                        SeatBlock a = ranked.get(i);
+                        SeatBlock b = ranked.get(j);
+                        assertTrue(a.row() != b.row() || a.lastSeat() < b.firstSeat() || b.lastSeat() < a.firstSeat());
+                    }
+                }
+            }
+        }
+    }
+
+    private static long groupScore(HallLayout layout, List<SeatBlock> group) {
+        long score = 0;
+        for (SeatBlock block : group) {
+            score += layout.score(block.row(), block.firstSeat() + (block.size() - 1) / 2);
+        }
+        return score;
+    }
+
+    private static long exhaustiveTwoRowScore(SeatGrid grid, HallLayout layout, int size) {
+        long best = Long.MAX_VALUE;
+        for (int row = 1; row < grid.getRows(); row++) {
+            for (int front = 1; front + size - 1 <= grid.getSeatsPerRow(); front++) {
+                for (int back = 1; back + size - 1 <= grid.getSeatsPerRow(); back++) {
+                    if (Math.abs(front - back) > 1 || !isFree(grid, row, front, size) || !isFree(grid, row + 1, back, size)) {
+                        continue;
+                    }
+                    int offset = (size - 1) / 2;
+                    best = Math.min(best, layout.score(row, front + offset) + layout.score(row + 1, back + offset));
+                }
+            }
+        }
+        return best;
+    }
+
+    private static boolean isFree(SeatGrid grid, int row, int firstSeat, int size) {
+        for (int seat = firstSeat; seat < firstSeat + size; seat++) {
+            if (!grid.isFree(row, seat)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static SeatGrid fullGrid(int rows, int seatsPerRow) {
+        SeatGrid grid = new SeatGrid(rows, seatsPerRow);
+        for (int row = 1; row <= rows; row++) {
+            for (int seat = 1; seat <= seatsPerRow; seat++) {
+                grid.setFree(row, seat, true);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * The list based algorithm the recommender replaced, kept here as the reference result
+     */
+    private static SeatBlock previousAlgorithm(boolean[][] occupied, int numberOfTickets) {
+        int centerRow = 5;
+        int centerSeat = 5;
+        double minDistance = Double.MAX_VALUE;
+        int minRowDifference = Integer.MAX_VALUE;
+        SeatBlock best = null;
+        for (int row = 1; row <= 9; row++) {
+            for (int startingNumber = 1; startingNumber <= 9; startingNumber++) {
+                if (startingNumber + numberOfTickets - 1 > 9) {
+                    continue;
+                }
+                boolean oneIsOccupied = false;
+                for (int i = 0; i < numberOfTickets; i++) {
+                    if (occupied[row][startingNumber + i]) {
+                        oneIsOccupied = true;
+                        break;
+                    }
+                }
+                if (!oneIsOccupied) {
+                    int middleSeat = startingNumber + (numberOfTickets - 1) / 2;
+                    int rowDifference = row - centerRow;
+                    int seatDifference = middleSeat - centerSeat;
+                    double newDistance = Math.sqrt(rowDifference * rowDifference + seatDifference * seatDifference);
+                    if (newDistance < minDistance || (newDistance == minDistance && Math.abs(rowDifference) < minRowDifference)) {
+                        minDistance = newDistance;
+                        minRowDifference = Math.abs(rowDifference);
+                        best = new SeatBlock(row, startingNumber, numberOfTickets);
+                    }
+                }
+            }
+        }
+        return best;
+    }
+}
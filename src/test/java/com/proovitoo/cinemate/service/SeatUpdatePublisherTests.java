@@ -0,0 +1,123 @@
+package com.proovitoo.cinemate.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proovitoo.cinemate.entity.SeatUpdate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatUpdatePublisherTests {
+    private static final Duration WINDOW = Duration.ofMillis(300);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Only the occupancy versions of the cache are used
+    private final SeatRecommendationCache recommendationCache = new SeatRecommendationCache(null, null);
+    private final SeatUpdatePublisher publisher =
+            new SeatUpdatePublisher(recommendationCache, objectMapper, WINDOW, Duration.ofMinutes(1));
+
+    @AfterEach
+    void stopPublisher() {
+        publisher.stop();
+    }
+
+    @Test
+    void changesWithinTheWindowArePushedAsOneUpdate() throws Exception {
+        RecordingEmitter emitter = subscribe(1L);
+
+        holdsChanged(1L, List.of(1L, 2L, 3L), true);
+        holdsChanged(1L, List.of(3L), false);
+        occupied(1L, List.of(2L));
+        holdsChanged(1L, List.of(4L), true);
+
+        emitter.await(1);
+        assertEquals(List.of(new SeatUpdate(1L, 4, List.of(2L), List.of(1L, 4L), List.of(3L))), emitter.updates);
+
+        holdsChanged(1L, List.of(1L), false);
+        emitter.await(1);
+        assertEquals(new SeatUpdate(1L, 5, List.of(), List.of(), List.of(1L)), emitter.updates.get(1));
+        assertEquals(2, emitter.updates.size());
+    }
+
+    @Test
+    void everySeanceIsPushedOnlyToItsOwnSubscribers() throws Exception {
+        RecordingEmitter first = subscribe(1L);
+        RecordingEmitter second = subscribe(1L);
+        RecordingEmitter other = subscribe(2L);
+        assertEquals(2, publisher.subscribers(1L));
+        assertEquals(1, publisher.subscribers(2L));
+
+        occupied(1L, List.of(10L, 11L));
+        holdsChanged(2L, List.of(20L), true);
+        occupied(3L, List.of(30L));
+
+        first.await(1);
+        second.await(1);
+        other.await(1);
+        SeatUpdate update = new SeatUpdate(1L, 1, List.of(10L, 11L), List.of(), List.of());
+        assertEquals(List.of(update), first.updates);
+        assertEquals(List.of(update), second.updates);
+        assertEquals(List.of(new SeatUpdate(2L, 1, List.of(), List.of(20L), List.of())), other.updates);
+        assertEquals(0, publisher.subscribers(3L));
+    }
+
+    private RecordingEmitter subscribe(Long scheduleId) {
+        RecordingEmitter emitter = new RecordingEmitter();
+        publisher.subscribe(scheduleId, emitter);
+        assertEquals(List.of(SeatUpdatePublisher.VERSION_EVENT), emitter.events);
+        return emitter;
+    }
+
+    private void occupied(Long scheduleId, List<Long> seatIds) {
+        SeatsOccupiedEvent event = new SeatsOccupiedEvent(scheduleId, seatIds);
+        recommendationCache.onSeatsOccupied(event);
+        publisher.onSeatsOccupied(event);
+    }
+
+    private void holdsChanged(Long scheduleId, List<Long> seatIds, boolean held) {
+        SeatHoldsChangedEvent event = new SeatHoldsChangedEvent(scheduleId, seatIds, held);
+        recommendationCache.onSeatHoldsChanged(event);
+        publisher.onSeatHoldsChanged(event);
+    }
+
+    /**
+     * Emitter that keeps the sent events instead of writing them to a response
+     */
+    private final class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private final List<SeatUpdate> updates = new CopyOnWriteArrayList<>();
+        private final Semaphore received = new Semaphore(0);
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            StringBuilder text = new StringBuilder();
+            builder.build().forEach(part -> text.append(part.getData()));
+            String name = null;
+            String data = null;
+            for (String line : text.toString().split("\n")) {
+                if (line.startsWith("event:")) {
+                    name = line.substring("event:".length());
+                } else if (line.startsWith("data:")) {
+                    data = line.substring("data:".length());
+                }
+            }
+            events.add(name);
+            if (SeatUpdatePublisher.UPDATE_EVENT.equals(name)) {
+                updates.add(objectMapper.readValue(data, SeatUpdate.class));
+                received.release();
+            }
+        }
+
+        void await(int count) throws InterruptedException {
+            assertTrue(received.tryAcquire(count, 5, TimeUnit.SECONDS), "No seat update was pushed");
+        }
+    }
+}
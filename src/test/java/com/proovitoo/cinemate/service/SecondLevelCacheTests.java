@@ -0,0 +1,87 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.config.SqlStatementCounter;
+import com.proovitoo.cinemate.entity.Genre;
+import com.proovitoo.cinemate.entity.Movie;
+import com.proovitoo.cinemate.entity.Schedule;
+import com.proovitoo.cinemate.repository.GenreRepository;
+import com.proovitoo.cinemate.repository.MovieRepository;
+import com.proovitoo.cinemate.repository.ScheduleRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class SecondLevelCacheTests {
+    @MockBean
+    private OmdbService omdbService;
+    @Autowired
+    private GenreRepository genreRepository;
+    @Autowired
+    private MovieRepository movieRepository;
+    @Autowired
+    private ScheduleRepository scheduleRepository;
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void catalogLookupsDoNotQueryTheDatabaseAfterWarmUp() {
+        Genre genre = new Genre();
+        genre.setName("Cached genre");
+        genreRepository.save(genre);
+        Movie movie = new Movie();
+        movie.setMovieName("Cached movie");
+        movie.setGenres(Set.of(genre));
+        movieRepository.save(movie);
+        Schedule schedule = new Schedule();
+        schedule.setMovie(movie);
+        schedule.setDateTime(LocalDateTime.now());
+        scheduleRepository.save(schedule);
+        // Results cached in the same millisecond as the last write to their tables count as stale,
+        // the lookups are repeated until they are answered from the cache
+        int warmUpStatements = -1;
+        for (int i = 0; i < 100 && warmUpStatements != 0; i++) {
+            sqlStatementCounter.start();
+            lookUp(movie.getId());
+            warmUpStatements = sqlStatementCounter.stop();
+        }
+        assertEquals(0, warmUpStatements);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getStatistics();
+        long queryCacheHits = statistics.getQueryCacheHitCount();
+        sqlStatementCounter.start();
+        for (int i = 0; i < 3; i++) {
+            lookUp(movie.getId());
+        }
+        assertEquals(0, sqlStatementCounter.stop());
+        assertEquals(queryCacheHits + 9, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    void savedGenreIsFoundAfterAMissWasCached() {
+        assertNull(genreRepository.findGenreByName("Genre created later"));
+
+        Genre genre = new Genre();
+        genre.setName("Genre created later");
+        genreRepository.save(genre);
+
+        assertEquals(genre.getId(), genreRepository.findGenreByName("Genre created later").getId());
+    }
+
+    private void lookUp(Long movieId) {
+        assertNotNull(genreRepository.findGenreByName("Cached genre"));
+        assertEquals("Cached movie", movieRepository.findMovieById(movieId).getMovieName());
+        assertEquals(1, scheduleRepository.findByMovieId(movieId).size());
+    }
+}
@@ -0,0 +1,54 @@
+package com.proovitoo.cinemate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTests {
+
+    @Test
+    void expiresOnTheScheduledTickAfterFullTurns() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(8);
+        wheel.schedule(1, 3);
+        wheel.schedule(2, 8);
+        wheel.schedule(3, 9);
+        wheel.schedule(4, 20);
+
+        List<Integer> expired = new ArrayList<>();
+        List<Integer> expiredAt = new ArrayList<>();
+        for (int tick = 1; tick <= 25; tick++) {
+            int current = tick;
+            wheel.advance(1, value -> {
+                expired.add(value);
+                expiredAt.add(current);
+            });
+        }
+        assertEquals(List.of(1, 2, 3, 4), expired);
+        assertEquals(List.of(3, 8, 9, 20), expiredAt);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelledTimeoutsNeverExpire() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(4);
+        List<TimingWheel.Timeout<Integer>> timeouts = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            timeouts.add(wheel.schedule(i, 1 + i % 13));
+        }
+        for (int i = 0; i < timeouts.size(); i += 2) {
+            assertTrue(wheel.cancel(timeouts.get(i)));
+        }
+        assertFalse(wheel.cancel(timeouts.get(0)));
+
+        List<Integer> expired = new ArrayList<>();
+        wheel.advance(13, expired::add);
+        assertEquals(5_000, expired.size());
+        assertTrue(expired.stream().allMatch(value -> value % 2 == 1));
+        assertFalse(wheel.cancel(timeouts.get(1)));
+    }
+}
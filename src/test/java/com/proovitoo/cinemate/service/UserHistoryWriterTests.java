@@ -0,0 +1,184 @@
+package com.proovitoo.cinemate.service;
+
+import com.proovitoo.cinemate.entity.Schedule;
+import com.proovitoo.cinemate.entity.UserHistory;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserHistoryWriterTests {
+    private final RecordingJdbcTemplate jdbcTemplate = new RecordingJdbcTemplate();
+
+    @Test
+    void writesFullBatchesAndFlushesTheRestAfterTheInterval() throws InterruptedException {
+        UserHistoryWriter writer = new UserHistoryWriter(jdbcTemplate, event -> {
+        }, 100, 3, Duration.ofMillis(50));
+        writer.start();
+        try {
+            for (int i = 0; i < 7; i++) {
+                assertTrue(writer.offer(history("user" + i, (long) i)));
+            }
+            awaitUntil(() -> jdbcTemplate.written() == 7);
+            assertTrue(jdbcTemplate.batches.stream().allMatch(batch -> batch.size() <= 3));
+            assertEquals(3, jdbcTemplate.batches.size());
+        } finally {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void refusesHistoryWhenTheQueueIsFull() throws InterruptedException {
+        jdbcTemplate.block();
+        UserHistoryWriter writer = new UserHistoryWriter(jdbcTemplate, event -> {
+        }, 2, 1, Duration.ofMillis(10));
+        writer.start();
+        try {
+            assertTrue(writer.offer(history("writing", 1L)));
+            jdbcTemplate.started.await();
+
+            assertTrue(writer.offer(history("queued", 2L)));
+            assertTrue(writer.offer(history("queued", 3L)));
+            assertFalse(writer.offer(history("refused", 4L)));
+            assertEquals(2, writer.pending());
+        } finally {
+            jdbcTemplate.release.countDown();
+            writer.stop();
+        }
+        assertEquals(3, jdbcTemplate.written());
+    }
+
+    @Test
+    void writesEverythingQueuedOnShutdown() throws InterruptedException {
+        UserHistoryWriter writer = new UserHistoryWriter(jdbcTemplate, event -> {
+        }, 1000, 100, Duration.ofMillis(200));
+        writer.start();
+        for (int i = 0; i < 250; i++) {
+            assertTrue(writer.offer(history("user" + i, (long) i)));
+        }
+        writer.stop();
+
+        assertEquals(250, jdbcTemplate.written());
+        assertEquals(0, writer.pending());
+        assertFalse(writer.offer(history("late", 1L)));
+    }
+
+    @Test
+    void failingListenerDoesNotStopTheWriter() throws InterruptedException {
+        AtomicInteger events = new AtomicInteger();
+        UserHistoryWriter writer = new UserHistoryWriter(jdbcTemplate, event -> {
+            events.incrementAndGet();
+            throw new DataAccessResourceFailureException("Database is down");
+        }, 100, 10, Duration.ofMillis(20));
+        writer.start();
+        try {
+            assertTrue(writer.offer(history("first", 1L)));
+            awaitUntil(() -> jdbcTemplate.written() == 1);
+            assertTrue(writer.offer(history("second", 2L)));
+            awaitUntil(() -> jdbcTemplate.written() == 2);
+            assertEquals(2, events.get());
+        } finally {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void rejectedHistoryIsSkippedAndTheRestOfTheBatchIsWritten() throws InterruptedException {
+        jdbcTemplate.rejectedScheduleId = 404L;
+        List<UserHistoryWrittenEvent> events = new CopyOnWriteArrayList<>();
+        UserHistoryWriter writer = new UserHistoryWriter(jdbcTemplate,
+                event -> events.add((UserHistoryWrittenEvent) event), 100, 5, Duration.ofMillis(500));
+        writer.start();
+        try {
+            for (long scheduleId : new long[]{1, 2, 404, 4, 5}) {
+                assertTrue(writer.offer(history("user" + scheduleId, scheduleId)));
+            }
+            awaitUntil(() -> !events.isEmpty());
+
+            assertEquals(List.of(1L, 2L, 4L, 5L), events.get(0).entries().stream().map(UserHistoryWrittenEvent.Entry::scheduleId).toList());
+            assertEquals(0, jdbcTemplate.batches.size());
+            assertEquals(List.of(1L, 2L, 4L, 5L), jdbcTemplate.rows.stream().map(row -> row[1]).toList());
+        } finally {
+            writer.stop();
+        }
+    }
+
+    private static UserHistory history(String userId, Long scheduleId) {
+        Schedule schedule = new Schedule();
+        schedule.setId(scheduleId);
+        UserHistory history = new UserHistory();
+        history.setUserId(userId);
+        history.setSchedule(schedule);
+        return history;
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition was not met in time");
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Keeps the batches instead of inserting them
+     */
+    private static class RecordingJdbcTemplate extends JdbcTemplate {
+        final List<List<?>> batches = new CopyOnWriteArrayList<>();
+        final List<Object[]> rows = new CopyOnWriteArrayList<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        volatile CountDownLatch release;
+        // Rows of this seance are refused like an unknown foreign key
+        volatile Long rejectedScheduleId;
+
+        /**
+         * Makes the writes wait until release is counted down
+         */
+        void block() {
+            release = new CountDownLatch(1);
+        }
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> pss) {
+            started.countDown();
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (rejectedScheduleId != null && batchArgs.stream()
+                    .anyMatch(entry -> rejectedScheduleId.equals(((UserHistoryWrittenEvent.Entry) entry).scheduleId()))) {
+                throw new DataIntegrityViolationException("Schedule " + rejectedScheduleId + " does not exist");
+            }
+            batches.add(List.copyOf(batchArgs));
+            return new int[0][];
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (rejectedScheduleId != null && rejectedScheduleId.equals(args[1])) {
+                throw new DataIntegrityViolationException("Schedule " + rejectedScheduleId + " does not exist");
+            }
+            rows.add(args);
+            return 1;
+        }
+
+        int written() {
+            return batches.stream().mapToInt(List::size).sum() + rows.size();
+        }
+    }
+}